@@ -1,19 +1,107 @@
 package ch.puzzle.quarkustechlab.boundary;
 
 import ch.puzzle.quarkustechlab.entity.Employee;
+import ch.puzzle.quarkustechlab.entity.EmployeeView;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.jpa.HibernateHints;
 
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
+/**
+ * All reads project into {@link EmployeeView}, no entities end up in the persistence context. Lists are returned a
+ * page at a time, either by page number ({@code page}, {@code size}) or, cheaper for deep pages, after the last id of
+ * the previous page ({@code after}, {@code size}), which the primary key index serves without skipping rows. The two
+ * can't be combined.
+ * {@code /employee/stream} returns all employees, written while they are fetched from the database.
+ */
 @Path("/employee")
 public class EmployeeResource {
 
+    @Inject
+    Jsonb jsonb;
+
+    @ConfigProperty(name = "employee.page.max-size", defaultValue = "1000")
+    int maxPageSize;
+
+    @ConfigProperty(name = "employee.stream.fetch-size", defaultValue = "500")
+    int fetchSize;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Employee> findAll() {
-        return Employee.findAll().list();
+    public List<EmployeeView> findAll(@QueryParam("page") Integer page,
+                                      @QueryParam("size") @DefaultValue("100") int size,
+                                      @QueryParam("after") Long after) {
+        if (page != null && after != null) {
+            throw new BadRequestException("page and after can't be combined");
+        }
+        if (page != null && page < 0) {
+            throw new BadRequestException("page must not be negative");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new BadRequestException("size must be between 1 and " + maxPageSize);
+        }
+        if (after != null) {
+            return Employee.find("id > ?1", Sort.by("id"), after).project(EmployeeView.class)
+                    .page(Page.ofSize(size)).list();
+        }
+        return Employee.findAll(Sort.by("id")).project(EmployeeView.class).page(page == null ? 0 : page, size).list();
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    public StreamingOutput stream() {
+        // runs after this method returned, so it needs a transaction of its own. The PostgreSQL driver only fetches
+        // in chunks of the fetch size within a transaction, otherwise it reads the whole result at once.
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                QuarkusTransaction.requiringNew().run(() -> write(writer));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+    }
+
+    private void write(Writer writer) {
+        PanacheQuery<EmployeeView> query = Employee.findAll(Sort.by("id")).project(EmployeeView.class)
+                .withHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .withHint(HibernateHints.HINT_READ_ONLY, true);
+        try (Stream<EmployeeView> employees = query.stream()) {
+            writer.write('[');
+            Iterator<EmployeeView> iterator = employees.iterator();
+            while (iterator.hasNext()) {
+                writer.write(jsonb.toJson(iterator.next()));
+                if (iterator.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write(']');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
-}
\ No newline at end of file
+}
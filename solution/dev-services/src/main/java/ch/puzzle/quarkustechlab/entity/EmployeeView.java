@@ -0,0 +1,11 @@
+package ch.puzzle.quarkustechlab.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Read-only projection of an {@link Employee}. Queries projecting into it select only these columns and create no
+ * managed entities, so Hibernate neither keeps them in the persistence context nor checks them for changes.
+ */
+@RegisterForReflection
+public record EmployeeView(Long id, String firstname, String lastname) {
+}
@@ -0,0 +1,48 @@
+package ch.puzzle.producer.boundary;
+
+import ch.puzzle.producer.control.MeasurementHistory;
+import ch.puzzle.producer.entity.SensorMeasurement;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * Serves the received measurements from memory, neither the broker nor a database is involved.
+ */
+@Singleton
+@Path("/data")
+public class DataResource {
+
+    @Inject
+    JmsDataConsumer jmsDataConsumer;
+
+    @Inject
+    MeasurementHistory measurementHistory;
+
+    @GET
+    @Path("/latest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLatest() {
+        SensorMeasurement lastData = jmsDataConsumer.getLastData();
+        return lastData == null ? Response.noContent().build() : Response.ok(lastData).build();
+    }
+
+    @GET
+    @Path("/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<SensorMeasurement> getHistory(@QueryParam("n") @DefaultValue("100") int n) {
+        if (n < 1 || n > measurementHistory.getCapacity()) {
+            throw new BadRequestException("n must be between 1 and " + measurementHistory.getCapacity());
+        }
+        return measurementHistory.latest(n);
+    }
+}
@@ -1,56 +1,208 @@
 package ch.puzzle.producer.boundary;
 
+import ch.puzzle.producer.control.MeasurementHistory;
+import ch.puzzle.producer.control.MeasurementReceiver;
 import ch.puzzle.producer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
-import javax.jms.*;
-import javax.json.bind.JsonbBuilder;
-import javax.ws.rs.GET;
-import javax.ws.rs.Path;
-import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSRuntimeException;
+import javax.json.bind.Jsonb;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
+/**
+ * Consumes the data-inbound queue with {@code consumer.concurrency} sessions on one connection, each with its own
+ * thread. Ordering depends on the configuration:
+ * <ul>
+ *     <li>One session: messages are processed in queue order. With {@code dups-ok} or {@code client} acknowledgement
+ *     a failure redelivers the unacknowledged messages, so some may be processed again after newer ones.</li>
+ *     <li>Several sessions: the broker spreads the messages over the consumers, there is no order between them.
+ *     The last data is therefore the measurement with the latest time, not the last one processed.</li>
+ * </ul>
+ * {@code auto} acknowledges every message synchronously, {@code dups-ok} lets the client acknowledge lazily in batches
+ * and {@code client} acknowledges every {@code consumer.ack-batch-size} messages, both trade duplicates after a failure
+ * for throughput.
+ * <p>
+ * On shutdown the receive loops are stopped and drain: they finish and acknowledge the messages in progress and return
+ * within the receive timeout. Loops still running after {@code consumer.shutdown-timeout} are interrupted. Keep the
+ * timeout below the grace period of the platform, otherwise the process is killed and everything unacknowledged is
+ * redelivered to the next instance.
+ * <p>
+ * The outcome of the shutdown is logged as one line of {@code key=value} pairs. Nothing can scrape a metric of a
+ * stopping process, so with {@code consumer.shutdown.report-file} set the outcome is also written to that file and
+ * exported by the next start as {@code consumer_last_shutdown_seconds} and {@code consumer_last_shutdown_drained}.
+ * The file has to be on a volume that outlives the process.
+ */
 @ApplicationScoped
-public class JmsDataConsumer implements Runnable {
+public class JmsDataConsumer {
 
     @Inject
     ConnectionFactory connectionFactory;
 
+    @Inject
+    Jsonb jsonb;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    MeasurementHistory measurementHistory;
+
+    @ConfigProperty(name = "consumer.concurrency", defaultValue = "1")
+    int concurrency;
+
+    @ConfigProperty(name = "consumer.ack-mode", defaultValue = "dups-ok")
+    String ackMode;
+
+    @ConfigProperty(name = "consumer.ack-batch-size", defaultValue = "100")
+    int ackBatchSize;
+
+    @ConfigProperty(name = "consumer.receive-timeout", defaultValue = "1s")
+    Duration receiveTimeout;
+
+    @ConfigProperty(name = "consumer.shutdown-timeout", defaultValue = "10s")
+    Duration shutdownTimeout;
+
+    @ConfigProperty(name = "consumer.shutdown.report-file")
+    Optional<String> shutdownReportFile;
+
     private final Logger logger = Logger.getLogger(JmsDataConsumer.class.getName());
-    private final ExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private volatile SensorMeasurement lastData;
+    private final AtomicReference<SensorMeasurement> lastData = new AtomicReference<>();
+    private final List<JMSContext> contexts = new ArrayList<>();
+    private final List<MeasurementReceiver> receivers = new ArrayList<>();
+    private ExecutorService executor;
 
     public SensorMeasurement getLastData() {
-        return lastData;
+        return lastData.get();
+    }
+
+    public long getReceived() {
+        return receivers.stream().mapToLong(MeasurementReceiver::getReceived).sum();
+    }
+
+    public long getRedelivered() {
+        return receivers.stream().mapToLong(MeasurementReceiver::getRedelivered).sum();
     }
 
     void onStart(@Observes StartupEvent event) {
-        scheduler.submit(this);
+        shutdownReportFile.ifPresent(file -> exportLastShutdown(Path.of(file)));
+        int sessionMode = MeasurementReceiver.sessionMode(ackMode);
+        executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            // further contexts share the connection of the first one
+            JMSContext connection = connectionFactory.createContext(sessionMode);
+            contexts.add(connection);
+            for (int i = 1; i < concurrency; i++) {
+                contexts.add(connection.createContext(sessionMode));
+            }
+        } catch (JMSRuntimeException e) {
+            // the REST endpoints stay available, they just have no data
+            logger.severe("Could not connect to the broker, not consuming data-inbound: " + e.getMessage());
+            closeContexts();
+            return;
+        }
+        contexts.forEach(context -> {
+            // each receive loop is the only writer of its history ring
+            MeasurementHistory.Ring history = measurementHistory.newRing();
+            receivers.add(new MeasurementReceiver(context, jsonb, "data-inbound", ackBatchSize, receiveTimeout,
+                    measurement -> update(history, measurement)));
+        });
+        receivers.forEach(executor::submit);
+        FunctionCounter.builder("consumer_received_messages", this, JmsDataConsumer::getReceived).register(registry);
+        FunctionCounter.builder("consumer_redelivered_messages", this, JmsDataConsumer::getRedelivered).register(registry);
+        logger.info("Consuming data-inbound with " + concurrency + " session(s), acknowledge mode " + ackMode);
     }
 
     void onShutDown(@Observes ShutdownEvent event) {
-        scheduler.shutdown();
-    }
-
-    @Override
-    public void run() {
-        try (JMSContext context = connectionFactory.createContext(Session.AUTO_ACKNOWLEDGE)) {
-            JMSConsumer consumer = context.createConsumer(context.createQueue("data-inbound"));
-            while (true) {
-                Message message = consumer.receive();
-                if (message == null) return;
-                logger.info("Receieved data: " + message.getBody(String.class));
-                lastData = JsonbBuilder.create().fromJson(message.getBody(String.class), SensorMeasurement.class);
-            }
-        } catch (JMSException e) {
-            throw new RuntimeException(e);
+        long start = System.nanoTime();
+        receivers.forEach(MeasurementReceiver::stop);
+        executor.shutdown();
+        boolean drained = false;
+        try {
+            drained = executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!drained) {
+            logger.warning("Receive loops didn't drain within " + shutdownTimeout + ", interrupting them");
+            executor.shutdownNow();
+        }
+        closeContexts();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("consumer_shutdown duration_ms=" + durationMillis + " drained=" + drained + " received="
+                + getReceived() + " redelivered=" + getRedelivered());
+        if (shutdownReportFile.isPresent()) {
+            writeShutdownReport(Path.of(shutdownReportFile.get()), durationMillis, drained);
+        }
+    }
+
+    private void writeShutdownReport(Path file, long durationMillis, boolean drained) {
+        Properties report = new Properties();
+        report.setProperty("duration_ms", Long.toString(durationMillis));
+        report.setProperty("drained", Boolean.toString(drained));
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            report.store(writer, "last shutdown of the JMS data consumer");
+        } catch (IOException e) {
+            logger.warning("Could not write the shutdown report to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void exportLastShutdown(Path file) {
+        Properties report = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            report.load(reader);
+        } catch (NoSuchFileException e) {
+            // first start, nothing to export
+            return;
+        } catch (IOException e) {
+            logger.warning("Could not read the shutdown report " + file + ": " + e.getMessage());
+            return;
+        }
+        try {
+            double seconds = Long.parseLong(report.getProperty("duration_ms")) / 1000.0;
+            double drained = Boolean.parseBoolean(report.getProperty("drained")) ? 1 : 0;
+            Gauge.builder("consumer_last_shutdown_seconds", () -> seconds).register(registry);
+            Gauge.builder("consumer_last_shutdown_drained", () -> drained).register(registry);
+        } catch (NumberFormatException e) {
+            logger.warning("Ignoring the invalid shutdown report " + file);
+        }
+    }
+
+    private void closeContexts() {
+        // the first context owns the connection and is closed last
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
         }
+        contexts.clear();
+    }
+
+    private void update(MeasurementHistory.Ring history, SensorMeasurement measurement) {
+        history.record(measurement);
+        lastData.accumulateAndGet(measurement, (current, next) ->
+                current == null || current.time == null || (next.time != null && !next.time.isBefore(current.time)) ? next : current);
     }
 }
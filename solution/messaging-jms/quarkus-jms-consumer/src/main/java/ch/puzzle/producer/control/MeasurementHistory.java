@@ -0,0 +1,134 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+import io.quarkus.runtime.Startup;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The most recent measurements in ring buffers of primitive arrays, so memory is fixed once the receivers are started
+ * and recording doesn't allocate. Every receive loop gets a ring of its own and is its only writer, so writes need
+ * neither a lock nor an atomic instruction. Readers don't lock either: they copy the entries and afterwards drop the
+ * ones a concurrent write may have overwritten in the meantime (a sequence lock over the whole ring). The rings are
+ * merged by measurement time on read.
+ * <p>
+ * Created at startup, so an invalid {@code consumer.history.size} fails the start instead of the first request.
+ */
+@Startup
+@ApplicationScoped
+public class MeasurementHistory {
+
+    private final int capacity;
+    private final List<Ring> rings = new CopyOnWriteArrayList<>();
+
+    public MeasurementHistory(@ConfigProperty(name = "consumer.history.size", defaultValue = "1024") int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("consumer.history.size must be at least 1, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns a new ring for one writer. Each ring holds {@code consumer.history.size} entries, so {@link #latest} can
+     * always fill its result even if a single receiver got all messages.
+     */
+    public Ring newRing() {
+        Ring ring = new Ring(capacity);
+        rings.add(ring);
+        return ring;
+    }
+
+    /**
+     * Returns up to {@code n} of the latest measurements of all rings, oldest first.
+     */
+    public List<SensorMeasurement> latest(int n) {
+        List<Ring> current = new ArrayList<>(rings);
+        if (current.size() == 1) {
+            return current.get(0).latest(n);
+        }
+        List<SensorMeasurement> merged = new ArrayList<>();
+        current.forEach(ring -> merged.addAll(ring.latest(n)));
+        // stable, so measurements of one ring with the same time stay in the order they were received
+        merged.sort(Comparator.comparing(measurement -> measurement.time));
+        return new ArrayList<>(merged.subList(Math.max(0, merged.size() - n), merged.size()));
+    }
+
+    /**
+     * Ring buffer with a single writer. Entries are kept in the order they were received.
+     */
+    public static class Ring {
+
+        private final int capacity;
+        private final long[] epochMillis;
+        private final double[] values;
+        // number of published entries, the next write goes to published % capacity
+        private volatile long published;
+        // number of entries whose write has started, ahead of published while a write is in progress
+        private volatile long claimed;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            this.epochMillis = new long[capacity];
+            this.values = new double[capacity];
+        }
+
+        /**
+         * Must only be called by the writer of this ring.
+         */
+        public void record(SensorMeasurement measurement) {
+            if (measurement.data == null || measurement.time == null) {
+                return;
+            }
+            long sequence = published;
+            // readers drop the entry held by the slot from now on
+            claimed = sequence + 1;
+            // a volatile write doesn't keep the following writes behind it
+            VarHandle.storeStoreFence();
+            int index = (int) (sequence % capacity);
+            epochMillis[index] = measurement.time.toEpochMilli();
+            values[index] = measurement.data;
+            published = sequence + 1;
+        }
+
+        List<SensorMeasurement> latest(int n) {
+            long end = published;
+            long start = Math.max(0, end - Math.min(n, capacity));
+            int count = (int) (end - start);
+            long[] copiedMillis = new long[count];
+            double[] copiedValues = new double[count];
+            for (int i = 0; i < count; i++) {
+                int index = (int) ((start + i) % capacity);
+                copiedMillis[i] = epochMillis[index];
+                copiedValues[i] = values[index];
+            }
+            // the copy has to be complete before checking which entries were overwritten while copying
+            VarHandle.acquireFence();
+            long overwritten = overwritten();
+            List<SensorMeasurement> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (start + i >= overwritten) {
+                    result.add(new SensorMeasurement(null, copiedValues[i], Instant.ofEpochMilli(copiedMillis[i])));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Sequence of the oldest entry whose slot hasn't been claimed by a later write.
+         */
+        long overwritten() {
+            return claimed - capacity;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receive loop of one session. With {@link JMSContext#CLIENT_ACKNOWLEDGE} the received messages are acknowledged every
+ * {@code ackBatchSize} messages and whenever the queue runs dry, other session modes acknowledge on their own. Every
+ * message body is read and decoded once.
+ * <p>
+ * {@link #stop()} lets the loop finish the message in progress, acknowledge what it processed and return within the
+ * receive timeout, so nothing processed is redelivered after a shutdown. Interrupting the thread or closing the context
+ * ends the loop right away.
+ */
+public class MeasurementReceiver implements Runnable {
+
+    private final Logger logger = Logger.getLogger(MeasurementReceiver.class.getName());
+
+    private final JMSContext context;
+    private final Jsonb jsonb;
+    private final String queueName;
+    private final int ackBatchSize;
+    private final long receiveTimeoutMillis;
+    private final Consumer<SensorMeasurement> handler;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong redelivered = new AtomicLong();
+    private volatile boolean running = true;
+    private int unacknowledged;
+
+    public MeasurementReceiver(JMSContext context, Jsonb jsonb, String queueName, int ackBatchSize, Duration receiveTimeout,
+                               Consumer<SensorMeasurement> handler) {
+        this.context = context;
+        this.jsonb = jsonb;
+        this.queueName = queueName;
+        this.ackBatchSize = Math.max(1, ackBatchSize);
+        this.receiveTimeoutMillis = receiveTimeout.toMillis();
+        this.handler = handler;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Messages the broker delivered again, e.g. because a previous consumer didn't acknowledge them before it stopped.
+     */
+    public long getRedelivered() {
+        return redelivered.get();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public static int sessionMode(String ackMode) {
+        switch (ackMode) {
+            case "auto":
+                return JMSContext.AUTO_ACKNOWLEDGE;
+            case "dups-ok":
+                return JMSContext.DUPS_OK_ACKNOWLEDGE;
+            case "client":
+                return JMSContext.CLIENT_ACKNOWLEDGE;
+            default:
+                throw new IllegalArgumentException("Unknown acknowledge mode " + ackMode + ", expected auto, dups-ok or client");
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean clientAcknowledge = context.getSessionMode() == JMSContext.CLIENT_ACKNOWLEDGE;
+        try (JMSConsumer consumer = context.createConsumer(context.createQueue(queueName))) {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                Message message = consumer.receive(receiveTimeoutMillis);
+                if (message == null) {
+                    // nothing arrived within the timeout, don't keep a partial batch unacknowledged
+                    if (clientAcknowledge) {
+                        acknowledge();
+                    }
+                    continue;
+                }
+                handle(message);
+                received.incrementAndGet();
+                if (clientAcknowledge && ++unacknowledged >= ackBatchSize) {
+                    acknowledge();
+                }
+            }
+            if (clientAcknowledge) {
+                acknowledge();
+            }
+        } catch (JMSRuntimeException e) {
+            // closing the context during receive ends the loop as well
+            if (!Thread.currentThread().isInterrupted() && !isInterruption(e)) {
+                logger.log(Level.WARNING, "Receiving from " + queueName + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Processes one message. A message that can't be processed is logged and acknowledged like the others, it would
+     * fail again after a redelivery and must not end the receive loop.
+     */
+    private void handle(Message message) {
+        try {
+            if (message.getJMSRedelivered()) {
+                redelivered.incrementAndGet();
+            }
+            String body = message.getBody(String.class);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Received data: " + body);
+            }
+            SensorMeasurement measurement = body == null ? null : jsonb.fromJson(body, SensorMeasurement.class);
+            if (measurement == null) {
+                logger.warning("Skipping message without data");
+                return;
+            }
+            handler.accept(measurement);
+        } catch (JsonbException e) {
+            logger.warning("Skipping undecodable message: " + e.getMessage());
+        } catch (JMSException e) {
+            logger.warning("Skipping unreadable message: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Processing a message from " + queueName + " failed, skipping it", e);
+        }
+    }
+
+    private static boolean isInterruption(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acknowledge() {
+        if (unacknowledged > 0) {
+            context.acknowledge();
+            unacknowledged = 0;
+        }
+    }
+}
@@ -10,12 +10,28 @@ import static org.hamcrest.CoreMatchers.is;
 public class DataResourceTest {
 
     @Test
-    public void testHelloEndpoint() {
+    public void testLatestEndpoint() {
         given()
-          .when().get("/hello")
+          .when().get("/data/latest")
+          .then()
+             .statusCode(204);
+    }
+
+    @Test
+    public void testHistoryEndpoint() {
+        given()
+          .when().get("/data/history?n=10")
           .then()
              .statusCode(200)
-             .body(is("Hello RESTEasy"));
+             .body(is("[]"));
+    }
+
+    @Test
+    public void testHistoryEndpointRejectsInvalidSize() {
+        given()
+          .when().get("/data/history?n=0")
+          .then()
+             .statusCode(400);
     }
 
-}
\ No newline at end of file
+}
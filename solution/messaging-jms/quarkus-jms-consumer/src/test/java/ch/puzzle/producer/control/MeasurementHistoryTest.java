@@ -0,0 +1,83 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeasurementHistoryTest {
+
+    @Test
+    public void testWrapAround() {
+        MeasurementHistory history = new MeasurementHistory(4);
+        MeasurementHistory.Ring ring = history.newRing();
+        for (int i = 1; i <= 10; i++) {
+            ring.record(measurement(i, i));
+        }
+
+        assertEquals(List.of(7.0, 8.0, 9.0, 10.0), values(history.latest(4)));
+        assertEquals(List.of(9.0, 10.0), values(history.latest(2)));
+        assertEquals(List.of(7.0, 8.0, 9.0, 10.0), values(history.latest(100)));
+    }
+
+    @Test
+    public void testDropsEntriesOverwrittenDuringCopy() {
+        MeasurementHistory.Ring ring = new MeasurementHistory.Ring(4) {
+            private boolean written;
+
+            @Override
+            long overwritten() {
+                // the writer catches up between the copy and the check
+                if (!written) {
+                    written = true;
+                    record(measurement(5, 5));
+                    record(measurement(6, 6));
+                }
+                return super.overwritten();
+            }
+        };
+        for (int i = 1; i <= 4; i++) {
+            ring.record(measurement(i, i));
+        }
+
+        // 1 and 2 were overwritten after they had been copied
+        assertEquals(List.of(3.0, 4.0), values(ring.latest(4)));
+        assertEquals(List.of(3.0, 4.0, 5.0, 6.0), values(ring.latest(4)));
+    }
+
+    @Test
+    public void testMergesRingsByTime() {
+        MeasurementHistory history = new MeasurementHistory(3);
+        MeasurementHistory.Ring first = history.newRing();
+        MeasurementHistory.Ring second = history.newRing();
+        first.record(measurement(1, 1));
+        second.record(measurement(2, 2));
+        first.record(measurement(3, 3));
+        second.record(measurement(4, 4));
+        first.record(measurement(5, 5));
+        second.record(new SensorMeasurement(null, null, Instant.ofEpochSecond(6)));
+
+        assertEquals(List.of(3.0, 4.0, 5.0), values(history.latest(3)));
+        assertEquals(List.of(1.0, 2.0, 3.0, 4.0, 5.0), values(history.latest(10)));
+        assertTrue(new MeasurementHistory(3).latest(3).isEmpty());
+    }
+
+    @Test
+    public void testRejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new MeasurementHistory(0));
+    }
+
+    private static SensorMeasurement measurement(double data, long second) {
+        return new SensorMeasurement(null, data, Instant.ofEpochSecond(second));
+    }
+
+    private static List<Double> values(List<SensorMeasurement> measurements) {
+        return measurements.stream().map(measurement -> measurement.data).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,109 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumption throughput of {@link MeasurementReceiver}s per acknowledge mode and number of sessions against an
+ * embedded Artemis broker, connected over TCP like the real one. The queue is filled first, then drained by the
+ * receivers like {@code JmsDataConsumer} does. Every message blocks for the given processing time on top of decoding,
+ * like a database write would.
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.mainClass=ch.puzzle.producer.control.MeasurementReceiverBenchmark
+ * -Dexec.classpathScope=test -Dexec.args="<messages> <processing micros>"}.
+ */
+public class MeasurementReceiverBenchmark {
+
+    private static final String QUEUE = "data-inbound";
+    private static final int[] CONCURRENCY = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long processingNanos = TimeUnit.MICROSECONDS.toNanos(args.length > 1 ? Long.parseLong(args[1]) : 200);
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("tcp", "tcp://localhost:61627"));
+        broker.start();
+
+        try (ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("tcp://localhost:61627");
+             Jsonb jsonb = JsonbBuilder.create()) {
+            System.out.printf("%-8s %11s %14s%n", "ack", "consumers", "msgs/sec");
+            for (String ackMode : new String[]{"auto", "dups-ok", "client"}) {
+                for (int concurrency : CONCURRENCY) {
+                    fill(connectionFactory, jsonb, messages);
+                    double rate = drain(connectionFactory, jsonb, ackMode, concurrency, messages, processingNanos);
+                    System.out.printf("%-8s %11d %,14.0f%n", ackMode, concurrency, rate);
+                }
+            }
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private static void fill(ActiveMQConnectionFactory connectionFactory, Jsonb jsonb, int messages) {
+        try (JMSContext context = connectionFactory.createContext(JMSContext.SESSION_TRANSACTED)) {
+            JMSProducer producer = context.createProducer();
+            Queue queue = context.createQueue(QUEUE);
+            for (int i = 1; i <= messages; i++) {
+                producer.send(queue, jsonb.toJson(new SensorMeasurement()));
+                if (i % 1000 == 0) {
+                    context.commit();
+                }
+            }
+            context.commit();
+        }
+    }
+
+    private static double drain(ActiveMQConnectionFactory connectionFactory, Jsonb jsonb, String ackMode, int concurrency,
+                                int messages, long processingNanos) throws InterruptedException {
+        int sessionMode = MeasurementReceiver.sessionMode(ackMode);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<JMSContext> contexts = new ArrayList<>();
+        JMSContext connection = connectionFactory.createContext(sessionMode);
+        contexts.add(connection);
+        for (int i = 1; i < concurrency; i++) {
+            contexts.add(connection.createContext(sessionMode));
+        }
+
+        List<MeasurementReceiver> receivers = new ArrayList<>();
+        contexts.forEach(context -> receivers.add(new MeasurementReceiver(context, jsonb, QUEUE, 100,
+                Duration.ofMillis(100), measurement -> process(processingNanos))));
+
+        long start = System.nanoTime();
+        receivers.forEach(executor::submit);
+        while (receivers.stream().mapToLong(MeasurementReceiver::getReceived).sum() < messages) {
+            Thread.sleep(1);
+        }
+        double rate = messages / ((System.nanoTime() - start) / 1e9);
+
+        receivers.forEach(MeasurementReceiver::stop);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        return rate;
+    }
+
+    private static void process(long nanos) {
+        // stands in for blocking work per message, e.g. writing to a database
+        LockSupport.parkNanos(nanos);
+    }
+}
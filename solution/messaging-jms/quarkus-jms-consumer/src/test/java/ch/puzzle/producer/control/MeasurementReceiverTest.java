@@ -0,0 +1,89 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeasurementReceiverTest {
+
+    private static final String QUEUE = "receiver-test";
+
+    private static EmbeddedActiveMQ broker;
+    private static ActiveMQConnectionFactory connectionFactory;
+    private static Jsonb jsonb;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0"));
+        broker.start();
+        connectionFactory = new ActiveMQConnectionFactory("vm://0");
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        jsonb.close();
+        connectionFactory.close();
+        broker.stop();
+    }
+
+    @Test
+    public void testSkipsFailingMessagesAndKeepsReceiving() throws Exception {
+        try (JMSContext producerContext = connectionFactory.createContext()) {
+            JMSProducer producer = producerContext.createProducer();
+            Queue queue = producerContext.createQueue(QUEUE);
+            producer.send(queue, new byte[]{1, 2, 3});
+            producer.send(queue, "null");
+            producer.send(queue, "{not json");
+            producer.send(queue, jsonb.toJson(new SensorMeasurement(null, -1.0, Instant.now())));
+            producer.send(queue, jsonb.toJson(new SensorMeasurement(null, 42.0, Instant.now())));
+        }
+
+        List<SensorMeasurement> handled = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (JMSContext context = connectionFactory.createContext(JMSContext.CLIENT_ACKNOWLEDGE)) {
+            MeasurementReceiver receiver = new MeasurementReceiver(context, jsonb, QUEUE, 10, Duration.ofMillis(50),
+                    measurement -> {
+                        if (measurement.data < 0) {
+                            throw new IllegalStateException("handler failure");
+                        }
+                        handled.add(measurement);
+                    });
+            executor.submit(receiver);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (receiver.getReceived() < 5 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            receiver.stop();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(5, receiver.getReceived());
+        }
+        assertEquals(1, handled.size());
+        assertEquals(42.0, handled.get(0).data);
+    }
+}
@@ -1,16 +1,19 @@
 package ch.puzzle.producer.boundary;
 
-import ch.puzzle.producer.entity.SensorMeasurement;
+import ch.puzzle.producer.control.MeasurementSender;
+import io.quarkus.arc.ClientProxy;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.jms.ConnectionFactory;
-import javax.jms.JMSContext;
-import javax.jms.Session;
-import javax.json.bind.JsonbBuilder;
+import javax.jms.JMSRuntimeException;
+import javax.json.bind.Jsonb;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -22,23 +25,68 @@ public class JmsDataProducer implements Runnable {
     @Inject
     ConnectionFactory connectionFactory;
 
+    @Inject
+    Jsonb jsonb;
+
+    @ConfigProperty(name = "producer.mode", defaultValue = "pooled")
+    String mode;
+
+    @ConfigProperty(name = "producer.interval", defaultValue = "5s")
+    Duration interval;
+
+    @ConfigProperty(name = "producer.messages-per-tick", defaultValue = "1")
+    int messagesPerTick;
+
+    @ConfigProperty(name = "producer.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "producer.max-outstanding", defaultValue = "1000")
+    int maxOutstanding;
+
     private final Logger logger = Logger.getLogger(JmsDataProducer.class.getName());
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
+    // only used by the scheduler thread
+    private MeasurementSender sender;
+
     void onStart(@Observes StartupEvent event) {
-        scheduler.scheduleWithFixedDelay(this, 0L, 5L, TimeUnit.SECONDS);
+        MeasurementSender.Mode senderMode = MeasurementSender.mode(mode);
+        if (senderMode == MeasurementSender.Mode.ASYNC && !confirmsSends()) {
+            throw new IllegalStateException("producer.mode=async needs a confirmationWindowSize on quarkus.artemis.url, "
+                    + "otherwise sends are never confirmed by the broker and max-outstanding bounds nothing");
+        }
+        sender = new MeasurementSender(connectionFactory, jsonb, "data-inbound", senderMode, batchSize, maxOutstanding);
+        scheduler.scheduleWithFixedDelay(this, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     void onStop(@Observes ShutdownEvent event) {
         scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // null if the start failed, e.g. because of an invalid producer.mode
+        if (sender != null) {
+            sender.close();
+        }
+    }
+
+    private boolean confirmsSends() {
+        ConnectionFactory factory = ClientProxy.unwrap(connectionFactory);
+        return !(factory instanceof ActiveMQConnectionFactory)
+                || ((ActiveMQConnectionFactory) factory).getConfirmationWindowSize() > 0;
     }
 
     @Override
     public void run() {
-        logger.info("Producing message");
-        try (JMSContext context = connectionFactory.createContext(Session.AUTO_ACKNOWLEDGE)) {
-            context.createProducer().send(context.createQueue("data-inbound"), JsonbBuilder.create().toJson(new SensorMeasurement()));
+        logger.info("Producing " + messagesPerTick + " message(s)");
+        try {
+            sender.send(messagesPerTick);
+        } catch (JMSRuntimeException e) {
+            // the sender reconnects with the next tick
+            logger.warning("Sending failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,250 @@
+package ch.puzzle.producer.control;
+
+import ch.puzzle.producer.entity.SensorMeasurement;
+
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.json.bind.Jsonb;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends measurements to a queue in one of several modes:
+ * <ul>
+ *     <li>{@link Mode#PER_MESSAGE}: a new context (connection and session) per message, only for comparison</li>
+ *     <li>{@link Mode#POOLED}: one long-lived context, producer and queue, a synchronous send per message</li>
+ *     <li>{@link Mode#BATCHED}: like pooled but transacted, a batch of messages is committed at once</li>
+ *     <li>{@link Mode#ASYNC}: like pooled but sends don't wait for the broker, a completion listener counts the
+ *     results and at most {@code maxOutstanding} sends are unconfirmed. Artemis only confirms sends with a
+ *     {@code confirmationWindowSize} on the connection, without it the listener is called right away.</li>
+ * </ul>
+ * A context isn't thread safe, so one sender must only be used by one thread at a time. After a failure the context is
+ * dropped and created again with the next send.
+ */
+public class MeasurementSender implements AutoCloseable {
+
+    public enum Mode { PER_MESSAGE, POOLED, BATCHED, ASYNC }
+
+    private static final long CONFIRMATION_TIMEOUT_SECONDS = 30;
+
+    private final Logger logger = Logger.getLogger(MeasurementSender.class.getName());
+
+    private final ConnectionFactory connectionFactory;
+    private final Jsonb jsonb;
+    private final String queueName;
+    private final Mode mode;
+    private final int batchSize;
+    private final int maxOutstanding;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private JMSContext context;
+    private JMSProducer producer;
+    private Queue queue;
+    private Confirmations confirmations;
+
+    public MeasurementSender(ConnectionFactory connectionFactory, Jsonb jsonb, String queueName, Mode mode, int batchSize, int maxOutstanding) {
+        this.connectionFactory = connectionFactory;
+        this.jsonb = jsonb;
+        this.queueName = queueName;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    public static Mode mode(String mode) {
+        return Mode.valueOf(mode.toUpperCase().replace('-', '_'));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Messages the broker confirmed, in async mode including the ones confirmed after this method returned.
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public void send(int count) {
+        try {
+            if (mode == Mode.PER_MESSAGE) {
+                sendPerMessage(count);
+            } else if (mode == Mode.BATCHED) {
+                sendBatched(count);
+            } else {
+                sendPooled(count);
+            }
+        } catch (JMSRuntimeException e) {
+            closeContext();
+            throw e;
+        }
+    }
+
+    private void sendPerMessage(int count) {
+        for (int i = 0; i < count; i++) {
+            try (JMSContext context = connectionFactory.createContext(Session.AUTO_ACKNOWLEDGE)) {
+                context.createProducer().send(context.createQueue(queueName), jsonb.toJson(new SensorMeasurement()));
+                sent.incrementAndGet();
+            } catch (JMSRuntimeException e) {
+                failed.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    private void sendPooled(int count) {
+        openContext(Session.AUTO_ACKNOWLEDGE);
+        for (int i = 0; i < count; i++) {
+            if (mode == Mode.ASYNC) {
+                // released by the completion listener
+                confirmations.acquire();
+            }
+            try {
+                producer.send(queue, jsonb.toJson(new SensorMeasurement()));
+            } catch (JMSRuntimeException e) {
+                failed.incrementAndGet();
+                if (mode == Mode.ASYNC) {
+                    confirmations.permits.release();
+                }
+                throw e;
+            }
+            if (mode == Mode.POOLED) {
+                sent.incrementAndGet();
+            }
+        }
+    }
+
+    private void sendBatched(int count) {
+        openContext(Session.SESSION_TRANSACTED);
+        int remaining = count;
+        while (remaining > 0) {
+            int batch = Math.min(batchSize, remaining);
+            try {
+                for (int i = 0; i < batch; i++) {
+                    producer.send(queue, jsonb.toJson(new SensorMeasurement()));
+                }
+                context.commit();
+            } catch (JMSRuntimeException e) {
+                failed.addAndGet(batch);
+                throw e;
+            }
+            sent.addAndGet(batch);
+            remaining -= batch;
+        }
+    }
+
+    private void openContext(int sessionMode) {
+        if (context != null) {
+            return;
+        }
+        context = connectionFactory.createContext(sessionMode);
+        producer = context.createProducer();
+        queue = context.createQueue(queueName);
+        if (mode == Mode.ASYNC) {
+            confirmations = new Confirmations();
+            producer.setAsync(confirmations);
+        }
+    }
+
+    private void closeContext() {
+        if (context == null) {
+            return;
+        }
+        try {
+            context.close();
+        } catch (JMSRuntimeException e) {
+            logger.log(Level.FINE, "Closing the context failed", e);
+        }
+        if (confirmations != null) {
+            confirmations.abandon();
+        }
+        context = null;
+        producer = null;
+        queue = null;
+        confirmations = null;
+    }
+
+    /**
+     * Waits up to the timeout until the broker confirmed all async sends.
+     */
+    public boolean awaitOutstanding(long timeout, TimeUnit unit) throws InterruptedException {
+        Confirmations current = confirmations;
+        if (current == null) {
+            return true;
+        }
+        if (!current.permits.tryAcquire(maxOutstanding, timeout, unit)) {
+            return false;
+        }
+        current.permits.release(maxOutstanding);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitOutstanding(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeContext();
+    }
+
+    /**
+     * Bounds the unconfirmed sends of one context. When the context is closed, its unconfirmed sends count as failed
+     * and confirmations arriving afterwards are ignored, the next context starts with all permits. Abandoning and the
+     * callbacks are synchronized, otherwise a confirmation racing with the close could be counted as sent and failed.
+     */
+    private class Confirmations implements CompletionListener {
+
+        private final Semaphore permits = new Semaphore(maxOutstanding);
+        private volatile boolean abandoned;
+
+        void acquire() {
+            try {
+                if (!permits.tryAcquire(CONFIRMATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new JMSRuntimeException("No confirmation from the broker within " + CONFIRMATION_TIMEOUT_SECONDS
+                            + "s with " + maxOutstanding + " sends outstanding");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JMSRuntimeException("Interrupted while waiting for confirmations");
+            }
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+            failed.addAndGet(maxOutstanding - permits.availablePermits());
+        }
+
+        @Override
+        public synchronized void onCompletion(Message message) {
+            if (!abandoned) {
+                sent.incrementAndGet();
+                permits.release();
+            }
+        }
+
+        @Override
+        public synchronized void onException(Message message, Exception exception) {
+            if (!abandoned) {
+                failed.incrementAndGet();
+                permits.release();
+                logger.log(Level.WARNING, "Async send failed", exception);
+            }
+        }
+    }
+}
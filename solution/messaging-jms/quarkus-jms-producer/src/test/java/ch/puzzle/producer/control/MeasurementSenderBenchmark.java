@@ -0,0 +1,60 @@
+package ch.puzzle.producer.control;
+
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link MeasurementSender} modes against an embedded Artemis broker, connected over TCP like the
+ * real one. Persistence is disabled, so the numbers show the client side and round trip costs, not the journal.
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.mainClass=ch.puzzle.producer.control.MeasurementSenderBenchmark
+ * -Dexec.classpathScope=test}, optionally with the seconds per mode as argument.
+ */
+public class MeasurementSenderBenchmark {
+
+    private static final String QUEUE = "data-inbound";
+    private static final int CHUNK = 100;
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 5;
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("tcp", "tcp://localhost:61626"));
+        broker.start();
+
+        // the completion listener of async sends needs a confirmation window
+        try (ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("tcp://localhost:61626?confirmationWindowSize=1048576");
+             Jsonb jsonb = JsonbBuilder.create()) {
+            for (MeasurementSender.Mode mode : MeasurementSender.Mode.values()) {
+                run(broker, new MeasurementSender(connectionFactory, jsonb, QUEUE, mode, 100, 1000), 1);
+                double rate = run(broker, new MeasurementSender(connectionFactory, jsonb, QUEUE, mode, 100, 1000), seconds);
+                System.out.printf("%-12s %,12.0f msgs/sec%n", mode, rate);
+            }
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private static double run(EmbeddedActiveMQ broker, MeasurementSender sender, long seconds) throws Exception {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        try (sender) {
+            while (System.nanoTime() < end) {
+                sender.send(CHUNK);
+            }
+            sender.awaitOutstanding(10, TimeUnit.SECONDS);
+        }
+        double rate = sender.getSent() / ((System.nanoTime() - start) / 1e9);
+        // nobody consumes, empty the queue so the broker doesn't start paging
+        broker.getActiveMQServer().locateQueue(SimpleString.toSimpleString(QUEUE)).deleteAllReferences();
+        return rate;
+    }
+}
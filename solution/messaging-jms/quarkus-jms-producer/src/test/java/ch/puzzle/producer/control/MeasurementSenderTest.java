@@ -0,0 +1,240 @@
+package ch.puzzle.producer.control;
+
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.CompletionListener;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeasurementSenderTest {
+
+    private static final String QUEUE = "sender-test";
+
+    private EmbeddedActiveMQ broker;
+    private ActiveMQConnectionFactory artemis;
+    private Jsonb jsonb;
+    // confirmations of the broker are held back while set and can be passed on one by one
+    private volatile boolean holding;
+    private final BlockingQueue<Runnable> held = new LinkedBlockingQueue<>();
+    private volatile boolean failing;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0"));
+        broker.start();
+        // the completion listener is only called once the broker confirmed a send
+        artemis = new ActiveMQConnectionFactory("vm://0?confirmationWindowSize=1048576");
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        jsonb.close();
+        artemis.close();
+        broker.stop();
+    }
+
+    @Test
+    public void testAsyncSendsAreCountedWhenConfirmed() throws Exception {
+        try (MeasurementSender sender = sender(5)) {
+            sender.send(50);
+
+            assertTrue(sender.awaitOutstanding(5, TimeUnit.SECONDS));
+            assertEquals(50, sender.getSent());
+            assertEquals(0, sender.getFailed());
+        }
+        assertEquals(50, awaitMessageCount(50));
+    }
+
+    @Test
+    public void testSendsWaitForAPermit() throws Exception {
+        holding = true;
+        MeasurementSender sender = sender(3);
+        sender.send(3);
+        assertFalse(sender.awaitOutstanding(100, TimeUnit.MILLISECONDS));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> sender.send(1));
+            assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+            assertEquals(3, awaitMessageCount(3));
+
+            confirm(1);
+            blocked.get(5, TimeUnit.SECONDS);
+            assertEquals(4, awaitMessageCount(4));
+            assertEquals(1, sender.getSent());
+
+            confirm(3);
+            assertTrue(sender.awaitOutstanding(5, TimeUnit.SECONDS));
+            assertEquals(4, sender.getSent());
+            assertEquals(0, sender.getFailed());
+        } finally {
+            executor.shutdownNow();
+        }
+        sender.close();
+    }
+
+    @Test
+    public void testUnconfirmedSendsFailWhenTheContextIsAbandoned() throws Exception {
+        holding = true;
+        MeasurementSender sender = sender(4);
+        sender.send(3);
+
+        // the failing send is counted at once, the three unconfirmed ones when its context is dropped
+        failing = true;
+        assertThrows(JMSRuntimeException.class, () -> sender.send(1));
+        assertEquals(0, sender.getSent());
+        assertEquals(4, sender.getFailed());
+
+        // confirmations of the dropped context are ignored
+        confirm(3);
+        assertEquals(0, sender.getSent());
+        assertEquals(4, sender.getFailed());
+
+        // the next context starts with all permits
+        failing = false;
+        holding = false;
+        sender.send(4);
+        assertTrue(sender.awaitOutstanding(5, TimeUnit.SECONDS));
+        assertEquals(4, sender.getSent());
+        assertEquals(4, sender.getFailed());
+        sender.close();
+    }
+
+    private MeasurementSender sender(int maxOutstanding) {
+        return new MeasurementSender(connectionFactory(), jsonb, QUEUE, MeasurementSender.Mode.ASYNC, 1, maxOutstanding);
+    }
+
+    private void confirm(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            Runnable confirmation = held.poll(5, TimeUnit.SECONDS);
+            assertTrue(confirmation != null, "no confirmation from the broker");
+            confirmation.run();
+        }
+    }
+
+    private long messageCount() {
+        return broker.getActiveMQServer().locateQueue(SimpleString.toSimpleString(QUEUE)).getMessageCount();
+    }
+
+    /**
+     * The broker confirms sends before the message count is updated, so a count can lag shortly behind.
+     */
+    private long awaitMessageCount(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (messageCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return messageCount();
+    }
+
+    /**
+     * Artemis connection factory whose producers hold back confirmations while {@link #holding} and fail sends while
+     * {@link #failing}.
+     */
+    private ConnectionFactory connectionFactory() {
+        return proxy(ConnectionFactory.class, artemis, (method, args, result) ->
+                result instanceof JMSContext ? context((JMSContext) result) : result);
+    }
+
+    private JMSContext context(JMSContext context) {
+        return proxy(JMSContext.class, context, (method, args, result) ->
+                result instanceof JMSProducer ? producer((JMSProducer) result) : result);
+    }
+
+    private JMSProducer producer(JMSProducer producer) {
+        JMSProducer[] self = new JMSProducer[1];
+        self[0] = proxy(JMSProducer.class, producer, new Interception() {
+            @Override
+            public Object[] before(String method, Object[] args) {
+                if (method.equals("send") && failing) {
+                    throw new JMSRuntimeException("send failed");
+                }
+                if (method.equals("setAsync") && args[0] != null) {
+                    return new Object[]{holding((CompletionListener) args[0])};
+                }
+                return args;
+            }
+
+            @Override
+            public Object after(String method, Object[] args, Object result) {
+                return result == producer ? self[0] : result;
+            }
+        });
+        return self[0];
+    }
+
+    private CompletionListener holding(CompletionListener listener) {
+        return new CompletionListener() {
+            @Override
+            public void onCompletion(Message message) {
+                pass(() -> listener.onCompletion(message));
+            }
+
+            @Override
+            public void onException(Message message, Exception exception) {
+                pass(() -> listener.onException(message, exception));
+            }
+
+            private void pass(Runnable confirmation) {
+                if (holding) {
+                    held.add(confirmation);
+                } else {
+                    confirmation.run();
+                }
+            }
+        };
+    }
+
+    private interface Interception {
+
+        default Object[] before(String method, Object[] args) {
+            return args;
+        }
+
+        Object after(String method, Object[] args, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Interception interception) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object[] actual = interception.before(method.getName(), args);
+            try {
+                return interception.after(method.getName(), actual, method.invoke(target, actual));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(MeasurementSenderTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
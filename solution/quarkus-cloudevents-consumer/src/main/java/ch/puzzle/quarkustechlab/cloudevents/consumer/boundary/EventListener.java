@@ -1,8 +1,13 @@
 package ch.puzzle.quarkustechlab.cloudevents.consumer.boundary;
 
-import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import ch.puzzle.quarkustechlab.cloudevents.consumer.control.EventDeduplicator;
+import ch.puzzle.quarkustechlab.cloudevents.consumer.control.LazySensorMeasurement;
+import ch.puzzle.quarkustechlab.cloudevents.consumer.control.MeasurementDecoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.smallrye.reactive.messaging.ce.IncomingCloudEventMetadata;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.slf4j.Logger;
@@ -15,17 +20,41 @@ public class EventListener {
 
     private final Logger logger = LoggerFactory.getLogger(EventListener.class);
 
+    private final MeasurementDecoder measurementDecoder;
+    private final EventDeduplicator eventDeduplicator;
+    private final boolean logEvents;
+    private final Counter events;
+
+    public EventListener(MeasurementDecoder measurementDecoder, EventDeduplicator eventDeduplicator, MeterRegistry registry,
+                         @ConfigProperty(name = "consumer.log-events", defaultValue = "true") boolean logEvents) {
+        this.measurementDecoder = measurementDecoder;
+        this.eventDeduplicator = eventDeduplicator;
+        this.logEvents = logEvents;
+        this.events = registry.counter("consumer_events");
+    }
+
     @Incoming("measurements")
-    public CompletionStage<Void> consume(Message<SensorMeasurement> message) {
-        IncomingCloudEventMetadata cloudEventMetadata = message.getMetadata(
+    public CompletionStage<Void> consume(Message<?> message) {
+        IncomingCloudEventMetadata<?> cloudEventMetadata = message.getMetadata(
                 IncomingCloudEventMetadata.class).orElseThrow(() -> new IllegalArgumentException("Expected a CloudEvent!"));
-        logger.info("Received Cloud Events (spec-version: {}): id: '{}', source:  '{}', type: '{}', subject: '{}', payload-message: '{}' ",
-                cloudEventMetadata.getSpecVersion(),
-                cloudEventMetadata.getId(),
-                cloudEventMetadata.getSource(),
-                cloudEventMetadata.getType(),
-                cloudEventMetadata.getSubject().orElse("no subject"),
-                message.getPayload());
+        String source = cloudEventMetadata.getSource().toString();
+        if (eventDeduplicator.isDuplicate(source, cloudEventMetadata.getId())) {
+            logger.debug("Dropping duplicate Cloud Event: id: '{}', source: '{}'", cloudEventMetadata.getId(), cloudEventMetadata.getSource());
+            return message.ack();
+        }
+        LazySensorMeasurement measurement = measurementDecoder.measurement(message);
+        events.increment();
+        if (logEvents) {
+            logger.info("Received Cloud Events (spec-version: {}): id: '{}', source:  '{}', type: '{}', subject: '{}', payload-message: '{}' ",
+                    cloudEventMetadata.getSpecVersion(),
+                    cloudEventMetadata.getId(),
+                    cloudEventMetadata.getSource(),
+                    cloudEventMetadata.getType(),
+                    cloudEventMetadata.getSubject().orElse("no subject"),
+                    measurement);
+        }
+        // only now, if decoding or logging failed the redelivered event must not count as a duplicate
+        eventDeduplicator.processed(source, cloudEventMetadata.getId());
         return message.ack();
     }
 }
@@ -0,0 +1,287 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import io.apicurio.registry.resolver.DefaultSchemaResolver;
+import io.apicurio.registry.resolver.ParsedSchemaImpl;
+import io.apicurio.registry.resolver.SchemaLookupResult;
+import io.apicurio.registry.resolver.SchemaParser;
+import io.apicurio.registry.resolver.SchemaResolver;
+import io.apicurio.registry.resolver.data.Record;
+import io.apicurio.registry.resolver.strategy.ArtifactReference;
+import io.apicurio.registry.resolver.strategy.ArtifactReferenceResolverStrategy;
+import io.apicurio.registry.rest.client.RegistryClient;
+import io.apicurio.registry.serde.data.KafkaSerdeMetadata;
+import io.apicurio.registry.serde.data.KafkaSerdeRecord;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.specific.SpecificData;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Avro schema resolver for the Apicurio serdes that keeps resolved schemas in a local cache, configured through the
+ * channel attributes:
+ * <ul>
+ *     <li>{@code schema-cache.ttl-ms}: how long an entry is used before it is resolved again, 0 (default) keeps it
+ *     forever. Schemas looked up by global id never change, the TTL matters for the artifact a producer writes to.</li>
+ *     <li>{@code schema-cache.warm-up}: comma separated Avro classes whose bundled schema is resolved (and with
+ *     auto-register registered) when the serde is configured, so the first record doesn't wait for the registry.</li>
+ *     <li>{@code schema-cache.directory}: file-based registry stand-in, every resolved schema is written there. While
+ *     the registry can't be reached, schemas found in the directory are used instead.</li>
+ *     <li>{@code schema-cache.offline}: resolve from the directory only and never contact the registry. Unknown
+ *     schemas are registered in the directory.</li>
+ * </ul>
+ * The cache is keyed by the schema instance of the record, which also saves the schema serialization the default
+ * resolver does for every record. Concurrent lookups of a missing key wait for one registry call, which runs outside
+ * of the map so other keys aren't held up. Hits and misses are counted over all instances, see
+ * {@link SchemaCacheMetrics}.
+ */
+@RegisterForReflection
+public class CachingSchemaResolver<T> implements SchemaResolver<Schema, T> {
+
+    public static final String TTL_MS = "schema-cache.ttl-ms";
+    public static final String WARM_UP = "schema-cache.warm-up";
+    public static final String DIRECTORY = "schema-cache.directory";
+    public static final String OFFLINE = "schema-cache.offline";
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingSchemaResolver.class);
+
+    private final DefaultSchemaResolver<Schema, T> delegate = new DefaultSchemaResolver<>();
+    private final Map<Object, Entry> cache = new ConcurrentHashMap<>();
+    private SchemaParser<Schema, T> schemaParser;
+    private long ttlNanos;
+    private boolean offline;
+    private FileSchemaRegistry fileRegistry;
+    private SchemaCacheMetrics metrics;
+
+    public CachingSchemaResolver() {
+    }
+
+    CachingSchemaResolver(SchemaCacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, SchemaParser<Schema, T> schemaParser) {
+        this.schemaParser = schemaParser;
+        if (metrics == null) {
+            this.metrics = SchemaCacheMetrics.current();
+        }
+        this.ttlNanos = Long.parseLong(value(configs, TTL_MS, "0")) * 1_000_000;
+        this.offline = Boolean.parseBoolean(value(configs, OFFLINE, "false"));
+        String directory = value(configs, DIRECTORY, null);
+        if (directory != null) {
+            fileRegistry = new FileSchemaRegistry(Path.of(directory));
+        } else if (offline) {
+            throw new IllegalArgumentException(OFFLINE + " requires " + DIRECTORY);
+        }
+        if (!offline) {
+            delegate.configure(configs, schemaParser);
+        }
+        String warmUp = value(configs, WARM_UP, null);
+        if (warmUp != null) {
+            warmUp(warmUp, value(configs, "topic", value(configs, "channel-name", null)));
+        }
+    }
+
+    @Override
+    public void setClient(RegistryClient client) {
+        delegate.setClient(client);
+    }
+
+    @Override
+    public void setArtifactResolverStrategy(ArtifactReferenceResolverStrategy<Schema, T> artifactResolverStrategy) {
+        delegate.setArtifactResolverStrategy(artifactResolverStrategy);
+    }
+
+    @Override
+    public SchemaParser<Schema, T> getSchemaParser() {
+        return schemaParser;
+    }
+
+    @Override
+    public SchemaLookupResult<Schema> resolveSchema(Record<T> data) {
+        if (!(data.metadata() instanceof KafkaSerdeMetadata metadata)) {
+            return delegate.resolveSchema(data);
+        }
+        Schema schema = data.payload() instanceof GenericContainer container
+                ? container.getSchema()
+                : schemaParser.getSchemaFromData(data).getParsedSchema();
+        RecordKey key = new RecordKey(metadata.getTopic(), metadata.isKey(), schema);
+        return cached(key, () -> offline ? registerOffline(key) : fromRegistry(() -> delegate.resolveSchema(data),
+                        () -> fileRegistry.globalId(key.schema().toString()).map(globalId -> lookupResult(globalId, artifactId(key), key.schema().toString()))),
+                // consumers of the same process look the schema up by global id
+                result -> cache.putIfAbsent(ArtifactReference.fromGlobalId(result.getGlobalId()),
+                        new Entry(CompletableFuture.completedFuture(result), expiry())));
+    }
+
+    @Override
+    public SchemaLookupResult<Schema> resolveSchemaByArtifactReference(ArtifactReference reference) {
+        return cached(reference, () -> {
+            if (!offline) {
+                return fromRegistry(() -> delegate.resolveSchemaByArtifactReference(reference),
+                        () -> Optional.ofNullable(reference.getGlobalId()).flatMap(globalId -> fileRegistry.schema(globalId)
+                                .map(schema -> lookupResult(globalId, null, schema))));
+            }
+            if (reference.getGlobalId() == null) {
+                throw new IllegalStateException("Offline schema cache can only resolve global ids, got " + reference);
+            }
+            String schema = fileRegistry.schema(reference.getGlobalId())
+                    .orElseThrow(() -> new IllegalStateException("No schema with global id " + reference.getGlobalId() + " in the schema directory"));
+            return lookupResult(reference.getGlobalId(), null, schema);
+        }, result -> { });
+    }
+
+    @Override
+    public void reset() {
+        cache.clear();
+        delegate.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private SchemaLookupResult<Schema> cached(Object key, Supplier<SchemaLookupResult<Schema>> loader,
+                                              Consumer<SchemaLookupResult<Schema>> onLoad) {
+        Entry entry = cache.get(key);
+        if (entry == null || !entry.isValid()) {
+            // only claims the key, the registry call happens afterwards so the map isn't locked while it runs
+            Entry loading = new Entry(new CompletableFuture<>(), expiry());
+            entry = cache.compute(key, (k, existing) -> existing != null && existing.isValid() ? existing : loading);
+            if (entry == loading) {
+                count(false);
+                return load(key, loading, loader, onLoad);
+            }
+        }
+        count(true);
+        try {
+            return entry.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private SchemaLookupResult<Schema> load(Object key, Entry loading, Supplier<SchemaLookupResult<Schema>> loader,
+                                            Consumer<SchemaLookupResult<Schema>> onLoad) {
+        SchemaLookupResult<Schema> result;
+        try {
+            result = store(loader.get());
+        } catch (RuntimeException e) {
+            // the lookups waiting for this one fail as well, the next one tries again
+            cache.remove(key, loading);
+            loading.result().completeExceptionally(e);
+            throw e;
+        }
+        loading.result().complete(result);
+        onLoad.accept(result);
+        return result;
+    }
+
+    /**
+     * Looks the schema up in the registry and, if that fails, in the schema directory. Only schemas the registry
+     * assigned a global id before are found there, so the ids stay the registry's.
+     */
+    private SchemaLookupResult<Schema> fromRegistry(Supplier<SchemaLookupResult<Schema>> registry,
+                                                    Supplier<Optional<SchemaLookupResult<Schema>>> directory) {
+        try {
+            return registry.get();
+        } catch (RuntimeException e) {
+            Optional<SchemaLookupResult<Schema>> result = fileRegistry != null ? directory.get() : Optional.empty();
+            if (result.isEmpty()) {
+                throw e;
+            }
+            logger.warn("Schema registry unavailable, using global id {} from the schema directory: {}", result.get().getGlobalId(), e.getMessage());
+            return result.get();
+        }
+    }
+
+    private void count(boolean hit) {
+        if (metrics == null) {
+            return;
+        }
+        if (hit) {
+            metrics.hit();
+        } else {
+            metrics.miss();
+        }
+    }
+
+    private SchemaLookupResult<Schema> store(SchemaLookupResult<Schema> result) {
+        if (!offline && fileRegistry != null) {
+            fileRegistry.store(result.getGlobalId(), new String(result.getParsedSchema().getRawSchema(), StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private SchemaLookupResult<Schema> registerOffline(RecordKey key) {
+        String schema = key.schema().toString();
+        return lookupResult(fileRegistry.register(schema), artifactId(key), schema);
+    }
+
+    private static String artifactId(RecordKey key) {
+        return key.topic() + (key.isKey() ? "-key" : "-value");
+    }
+
+    private SchemaLookupResult<Schema> lookupResult(long globalId, String artifactId, String schema) {
+        byte[] rawSchema = schema.getBytes(StandardCharsets.UTF_8);
+        return SchemaLookupResult.<Schema>builder()
+                .globalId(globalId)
+                .artifactId(artifactId)
+                .parsedSchema(new ParsedSchemaImpl<Schema>()
+                        .setParsedSchema(schemaParser.parseSchema(rawSchema, Map.of()))
+                        .setRawSchema(rawSchema))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void warmUp(String classNames, String topic) {
+        for (String className : classNames.split(",")) {
+            long start = System.nanoTime();
+            try {
+                Class<?> type = Class.forName(className.trim(), true, Thread.currentThread().getContextClassLoader());
+                Schema schema = SpecificData.get().getSchema(type);
+                KafkaSerdeMetadata metadata = new KafkaSerdeMetadata(topic, false, new RecordHeaders());
+                SchemaLookupResult<Schema> result = resolveSchema(new KafkaSerdeRecord<>(metadata, (T) new GenericData.Record(schema)));
+                logger.info("Schema cache warmed up with {} for topic {} as global id {} in {} ms",
+                        schema.getFullName(), topic, result.getGlobalId(), (System.nanoTime() - start) / 1_000_000);
+            } catch (ClassNotFoundException | RuntimeException e) {
+                // the schema is resolved again on first use, e.g. once the producer registered it
+                logger.warn("Could not warm up the schema cache with {}: {}", className, e.getMessage());
+            }
+        }
+    }
+
+    private static String value(Map<String, ?> configs, String key, String defaultValue) {
+        Object value = configs.get(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    private long expiry() {
+        return ttlNanos > 0 ? System.nanoTime() + ttlNanos : Long.MAX_VALUE;
+    }
+
+    private record RecordKey(String topic, boolean isKey, Schema schema) {
+    }
+
+    private record Entry(CompletableFuture<SchemaLookupResult<Schema>> result, long expiresAt) {
+
+        boolean isValid() {
+            return expiresAt == Long.MAX_VALUE || System.nanoTime() - expiresAt < 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Benchmark mode: after a warm-up, measures the consumed events and logs the events per second, the CPU time and the
+ * bytes on the wire per event. Run it next to the producer benchmark and compare the cloud events modes and the lazy
+ * payload option, e.g. {@code ./mvnw quarkus:dev -Dquarkus.profile=dev,benchmark,measurements-lazy}.
+ */
+@ApplicationScoped
+public class ConsumerBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerBenchmark.class);
+    private static final String CHANNEL = "measurements";
+
+    private final KafkaClientService kafkaClientService;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Duration warmup;
+    private final Duration duration;
+
+    public ConsumerBenchmark(KafkaClientService kafkaClientService, MeterRegistry registry,
+                             @ConfigProperty(name = "consumer.benchmark.enabled", defaultValue = "false") boolean enabled,
+                             @ConfigProperty(name = "consumer.benchmark.warmup", defaultValue = "10s") Duration warmup,
+                             @ConfigProperty(name = "consumer.benchmark.duration", defaultValue = "30s") Duration duration) {
+        this.kafkaClientService = kafkaClientService;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled) {
+            Thread thread = new Thread(this::run, "consumer-benchmark");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        Map<String, ?> configuration = kafkaClientService.getConsumer(CHANNEL).configuration();
+        logger.info("Benchmark of channel {}: warm-up {}, measuring {}, value.deserializer={}",
+                CHANNEL, warmup, duration, configuration.get("value.deserializer"));
+        try {
+            Thread.sleep(warmup.toMillis());
+            Snapshot start = snapshot();
+            Thread.sleep(duration.toMillis());
+            Snapshot end = snapshot();
+            report(start, end);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Snapshot snapshot() {
+        double events = registry.get("consumer_events").counter().count();
+        // the Kafka consumer is not thread-safe, its metrics are read between two polls
+        Function<Consumer<Object, Object>, Map<MetricName, ? extends Metric>> readMetrics = Consumer::metrics;
+        Map<MetricName, ? extends Metric> metrics = kafkaClientService.<Object, Object>getConsumer(CHANNEL)
+                .runOnPollingThread(readMetrics)
+                .await().atMost(Duration.ofSeconds(10));
+        return new Snapshot(System.nanoTime(), processCpuNanos(), events,
+                consumerMetric(metrics, "bytes-consumed-total"), consumerMetric(metrics, "records-consumed-total"));
+    }
+
+    private void report(Snapshot start, Snapshot end) {
+        double seconds = (end.nanos - start.nanos) / 1e9;
+        double events = end.events - start.events;
+        if (events == 0) {
+            logger.warn("Benchmark result: no event was consumed within {}", duration);
+            return;
+        }
+        logger.info("Benchmark result: {} events/s, {} us CPU/event, {} bytes/event",
+                String.format("%.0f", events / seconds),
+                String.format("%.2f", (end.cpuNanos - start.cpuNanos) / events / 1000),
+                String.format("%.1f", (end.bytes - start.bytes) / (end.records - start.records)));
+    }
+
+    /**
+     * Client-wide value of a fetch manager metric, the per-topic variants carry a topic tag.
+     */
+    private static double consumerMetric(Map<MetricName, ? extends Metric> metrics, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+            MetricName metricName = metric.getKey();
+            if (metricName.group().equals("consumer-fetch-manager-metrics") && metricName.name().equals(name)
+                    && !metricName.tags().containsKey("topic")) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * CPU time of the whole process, which includes the Kafka polling thread and deserialization.
+     */
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private record Snapshot(long nanos, long cpuNanos, double events, double bytes, double records) {
+    }
+}
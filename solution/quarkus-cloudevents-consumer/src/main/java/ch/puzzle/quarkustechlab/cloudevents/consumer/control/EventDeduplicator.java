@@ -0,0 +1,161 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Recognizes redelivered cloud events by source and id, e.g. after a rebalance. The processed events are kept in two
+ * Bloom filters of fixed size: new events go into the current one, lookups check both, and once per window the older
+ * one is cleared and becomes the current one. So an event is remembered for at least one window and memory doesn't
+ * grow with the number of events. The price are false positives, whose estimated rate is exported next to the dropped
+ * duplicates. Sizing is done for the expected number of events per window and the wanted false positive rate.
+ */
+@ApplicationScoped
+public class EventDeduplicator {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int hashFunctions;
+    private final long mask;
+    private final Counter duplicates;
+    private long[] current;
+    private long[] previous;
+    private long currentBits;
+    private long previousBits;
+    private long rotatedAt = System.nanoTime();
+
+    public EventDeduplicator(MeterRegistry registry,
+                             @ConfigProperty(name = "consumer.dedup.enabled", defaultValue = "true") boolean enabled,
+                             @ConfigProperty(name = "consumer.dedup.window", defaultValue = "10m") Duration window,
+                             @ConfigProperty(name = "consumer.dedup.expected-events", defaultValue = "1000000") long expectedEvents,
+                             @ConfigProperty(name = "consumer.dedup.false-positive-rate", defaultValue = "0.001") double falsePositiveRate) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        // optimal size is -n ln(p) / ln(2)^2 bits, rounded up to a power of two so indexes can be masked
+        long optimalBits = (long) Math.ceil(-expectedEvents * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long bits = enabled ? Long.highestOneBit(Math.max(64, optimalBits - 1)) << 1 : 64;
+        this.mask = bits - 1;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / expectedEvents * Math.log(2)));
+        this.current = new long[(int) (bits >>> 6)];
+        this.previous = new long[current.length];
+        this.duplicates = registry.counter("consumer_dedup_duplicates");
+        Gauge.builder("consumer_dedup_false_positive_rate", this, EventDeduplicator::falsePositiveRate).register(registry);
+    }
+
+    /**
+     * Returns true if the event was (probably) processed before. Events are only remembered by {@link #processed}, so
+     * an event whose processing failed isn't taken for a duplicate when it's redelivered.
+     */
+    public synchronized boolean isDuplicate(String source, String id) {
+        if (!enabled) {
+            return false;
+        }
+        rotate();
+        long hash = hash(source, id);
+        long step = mix(hash) | 1;
+        boolean inCurrent = true;
+        boolean inPrevious = true;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (hash + i * step) & mask;
+            int word = (int) (bit >>> 6);
+            long bitMask = 1L << bit;
+            if ((current[word] & bitMask) == 0) {
+                inCurrent = false;
+            }
+            if ((previous[word] & bitMask) == 0) {
+                inPrevious = false;
+            }
+        }
+        if (inCurrent || inPrevious) {
+            duplicates.increment();
+            if (!inCurrent) {
+                // events found in the previous filter are added to the current one as well, so they stay known
+                add(hash, step);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remembers an event after it was processed successfully.
+     */
+    public synchronized void processed(String source, String id) {
+        if (!enabled) {
+            return;
+        }
+        rotate();
+        long hash = hash(source, id);
+        add(hash, mix(hash) | 1);
+    }
+
+    private void add(long hash, long step) {
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (hash + i * step) & mask;
+            int word = (int) (bit >>> 6);
+            long bitMask = 1L << bit;
+            if ((current[word] & bitMask) == 0) {
+                current[word] |= bitMask;
+                currentBits++;
+            }
+        }
+    }
+
+    /**
+     * Probability that an event not seen before is taken for a duplicate, given how full the filters are.
+     */
+    public synchronized double falsePositiveRate() {
+        double bits = mask + 1;
+        double currentRate = Math.pow(currentBits / bits, hashFunctions);
+        double previousRate = Math.pow(previousBits / bits, hashFunctions);
+        return 1 - (1 - currentRate) * (1 - previousRate);
+    }
+
+    private void rotate() {
+        long now = System.nanoTime();
+        if (now - rotatedAt < windowNanos) {
+            return;
+        }
+        long[] cleared = previous;
+        Arrays.fill(cleared, 0);
+        previous = current;
+        previousBits = currentBits;
+        current = cleared;
+        currentBits = 0;
+        // after a pause longer than two windows both filters are outdated
+        if (now - rotatedAt >= 2 * windowNanos) {
+            Arrays.fill(previous, 0);
+            previousBits = 0;
+        }
+        rotatedAt = now;
+    }
+
+    private static long hash(String source, String id) {
+        return mix(hash(hash(FNV_OFFSET, source), id));
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // separates source and id, so "a" + "bc" and "ab" + "c" differ
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
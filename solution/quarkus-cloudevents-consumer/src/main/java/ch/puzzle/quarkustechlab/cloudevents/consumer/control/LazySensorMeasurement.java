@@ -0,0 +1,36 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+
+import java.util.function.Supplier;
+
+/**
+ * Measurement that is decoded on first access only, events that are never looked at cost no decoding.
+ */
+public final class LazySensorMeasurement implements Supplier<SensorMeasurement> {
+
+    private Supplier<SensorMeasurement> decoder;
+    private SensorMeasurement value;
+
+    LazySensorMeasurement(Supplier<SensorMeasurement> decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public synchronized SensorMeasurement get() {
+        if (decoder != null) {
+            value = decoder.get();
+            decoder = null;
+        }
+        return value;
+    }
+
+    public synchronized boolean isDecoded() {
+        return decoder == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,65 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import io.apicurio.registry.serde.avro.AvroKafkaDeserializer;
+import io.apicurio.registry.serde.avro.AvroKafkaSerdeConfig;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives access to the measurement of an event independent of how the channel is configured: already decoded by the
+ * Avro deserializer, the JSON data of a structured cloud event or, with the byte array deserializer, the raw Avro
+ * bytes of a binary cloud event. Raw bytes are kept as they are and only decoded when the measurement is accessed,
+ * using the Apicurio deserializer with the channel's configuration.
+ */
+@ApplicationScoped
+public class MeasurementDecoder {
+
+    private static final String CHANNEL = "measurements";
+
+    private final KafkaClientService kafkaClientService;
+    private volatile AvroKafkaDeserializer<SensorMeasurement> avroDeserializer;
+
+    public MeasurementDecoder(KafkaClientService kafkaClientService) {
+        this.kafkaClientService = kafkaClientService;
+    }
+
+    public LazySensorMeasurement measurement(Message<?> message) {
+        Object payload = message.getPayload();
+        if (payload instanceof SensorMeasurement sensorMeasurement) {
+            return new LazySensorMeasurement(() -> sensorMeasurement);
+        }
+        if (payload instanceof JsonObject json) {
+            return new LazySensorMeasurement(() -> SensorMeasurement.newBuilder().setData(json.getDouble("data")).build());
+        }
+        if (payload instanceof byte[] bytes) {
+            IncomingKafkaRecordMetadata<?, ?> metadata = message.getMetadata(IncomingKafkaRecordMetadata.class)
+                    .orElseThrow(() -> new IllegalArgumentException("Expected a Kafka record!"));
+            return new LazySensorMeasurement(() -> avroDeserializer().deserialize(metadata.getTopic(), metadata.getHeaders(), bytes));
+        }
+        throw new IllegalArgumentException("Unsupported measurement payload " + (payload == null ? null : payload.getClass()));
+    }
+
+    private AvroKafkaDeserializer<SensorMeasurement> avroDeserializer() {
+        AvroKafkaDeserializer<SensorMeasurement> deserializer = avroDeserializer;
+        if (deserializer == null) {
+            synchronized (this) {
+                deserializer = avroDeserializer;
+                if (deserializer == null) {
+                    Map<String, Object> configuration = new HashMap<>(kafkaClientService.getConsumer(CHANNEL).configuration());
+                    configuration.put(AvroKafkaSerdeConfig.USE_SPECIFIC_AVRO_READER, true);
+                    deserializer = new AvroKafkaDeserializer<>();
+                    deserializer.configure(configuration, false);
+                    avroDeserializer = deserializer;
+                }
+            }
+        }
+        return deserializer;
+    }
+}
@@ -0,0 +1,162 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import io.apicurio.registry.resolver.SchemaLookupResult;
+import io.apicurio.registry.resolver.strategy.ArtifactReference;
+import io.apicurio.registry.rest.client.RegistryClient;
+import io.apicurio.registry.serde.avro.AvroSchemaParser;
+import io.apicurio.registry.serde.avro.DefaultAvroDatumProvider;
+import io.apicurio.registry.serde.data.KafkaSerdeMetadata;
+import io.apicurio.registry.serde.data.KafkaSerdeRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.Schema;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingSchemaResolverTest {
+
+    private static final String SCHEMA = SensorMeasurement.getClassSchema().toString();
+    private static final long GLOBAL_ID = 7;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger registryCalls = new AtomicInteger();
+    private final CountDownLatch registryReleased = new CountDownLatch(1);
+    private volatile boolean registryDown;
+    private volatile boolean registryBlocked;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void release() {
+        registryReleased.countDown();
+    }
+
+    @Test
+    @DisplayName("a resolved schema is served from the cache")
+    public void testHit() {
+        CachingSchemaResolver<Object> resolver = resolver(false);
+
+        SchemaLookupResult<Schema> first = resolver.resolveSchemaByArtifactReference(ArtifactReference.fromGlobalId(GLOBAL_ID));
+        SchemaLookupResult<Schema> second = resolver.resolveSchemaByArtifactReference(ArtifactReference.fromGlobalId(GLOBAL_ID));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(SensorMeasurement.getClassSchema(), first.getParsedSchema().getParsedSchema());
+        Assertions.assertEquals(1, registryCalls.get());
+        Assertions.assertEquals(1, count("hit"));
+        Assertions.assertEquals(1, count("miss"));
+    }
+
+    @Test
+    @DisplayName("concurrent lookups of a missing schema call the registry once")
+    public void testConcurrentMiss() throws Exception {
+        CachingSchemaResolver<Object> resolver = resolver(false);
+        registryBlocked = true;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<SchemaLookupResult<Schema>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executor.submit(() -> resolver.resolveSchemaByArtifactReference(ArtifactReference.fromGlobalId(GLOBAL_ID))));
+            }
+            while (registryCalls.get() == 0) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(100);
+            registryReleased.countDown();
+
+            for (Future<SchemaLookupResult<Schema>> lookup : lookups) {
+                Assertions.assertEquals(GLOBAL_ID, lookup.get(5, TimeUnit.SECONDS).getGlobalId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, registryCalls.get());
+        Assertions.assertEquals(1, count("miss"));
+        Assertions.assertEquals(7, count("hit"));
+    }
+
+    @Test
+    @DisplayName("schemas from the directory are used while the registry is unavailable")
+    public void testRegistryUnavailable() {
+        new FileSchemaRegistry(directory).store(GLOBAL_ID, SCHEMA);
+        CachingSchemaResolver<Object> resolver = resolver(true);
+        registryDown = true;
+
+        SchemaLookupResult<Schema> byGlobalId = resolver.resolveSchemaByArtifactReference(ArtifactReference.fromGlobalId(GLOBAL_ID));
+        Assertions.assertEquals(GLOBAL_ID, byGlobalId.getGlobalId());
+        Assertions.assertEquals(SensorMeasurement.getClassSchema(), byGlobalId.getParsedSchema().getParsedSchema());
+
+        KafkaSerdeMetadata metadata = new KafkaSerdeMetadata("measurements", false, new RecordHeaders());
+        SchemaLookupResult<Schema> byRecord = resolver.resolveSchema(new KafkaSerdeRecord<>(metadata, SensorMeasurement.newBuilder().setData(1).build()));
+        Assertions.assertEquals(GLOBAL_ID, byRecord.getGlobalId());
+
+        Assertions.assertThrows(RuntimeException.class, () -> resolver.resolveSchemaByArtifactReference(ArtifactReference.fromGlobalId(GLOBAL_ID + 1)));
+    }
+
+    private CachingSchemaResolver<Object> resolver(boolean withDirectory) {
+        SchemaCacheMetrics metrics = new SchemaCacheMetrics(registry);
+        metrics.onStart(null);
+        CachingSchemaResolver<Object> resolver = new CachingSchemaResolver<>(metrics);
+        resolver.setClient(registryClient());
+        Map<String, Object> configs = new HashMap<>();
+        configs.put("apicurio.registry.retry-count", "0");
+        configs.put("apicurio.registry.artifact-resolver-strategy", "io.apicurio.registry.serde.strategy.TopicIdStrategy");
+        if (withDirectory) {
+            configs.put(CachingSchemaResolver.DIRECTORY, directory.toString());
+        }
+        resolver.configure(configs, new AvroSchemaParser<>(new DefaultAvroDatumProvider<>()));
+        return resolver;
+    }
+
+    /**
+     * Serves the SensorMeasurement schema under {@link #GLOBAL_ID} and fails every other call.
+     */
+    private RegistryClient registryClient() {
+        return (RegistryClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RegistryClient.class}, (proxy, method, args) -> {
+            if (registryDown) {
+                throw new IllegalStateException("registry unavailable");
+            }
+            switch (method.getName()) {
+                case "getContentByGlobalId":
+                    registryCalls.incrementAndGet();
+                    if (registryBlocked) {
+                        registryReleased.await(5, TimeUnit.SECONDS);
+                    }
+                    if ((long) args[0] != GLOBAL_ID) {
+                        throw new IllegalStateException("no schema with global id " + args[0]);
+                    }
+                    return new ByteArrayInputStream(SCHEMA.getBytes(StandardCharsets.UTF_8));
+                case "getArtifactReferencesByGlobalId":
+                    return List.of();
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private double count(String result) {
+        return registry.get("schema_cache_requests").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,67 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class EventDeduplicatorTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(200);
+    // long enough to pass one rotation, short enough to stay below two windows
+    private static final long ROTATION_MILLIS = WINDOW.toMillis() * 3 / 2;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final EventDeduplicator deduplicator = new EventDeduplicator(registry, true, WINDOW, 1000, 0.001);
+
+    @Test
+    @DisplayName("a processed event is a duplicate within the window")
+    public void testDuplicate() {
+        deduplicator.processed("sensor-1", "42");
+
+        Assertions.assertTrue(deduplicator.isDuplicate("sensor-1", "42"));
+        Assertions.assertFalse(deduplicator.isDuplicate("sensor-1", "43"));
+        Assertions.assertFalse(deduplicator.isDuplicate("sensor-2", "42"));
+        Assertions.assertEquals(1, registry.get("consumer_dedup_duplicates").counter().count());
+    }
+
+    @Test
+    @DisplayName("an event that was not processed is not taken for a duplicate")
+    public void testNotProcessed() {
+        Assertions.assertFalse(deduplicator.isDuplicate("sensor-1", "42"));
+        Assertions.assertFalse(deduplicator.isDuplicate("sensor-1", "42"));
+    }
+
+    @Test
+    @DisplayName("a processed event is still a duplicate after one rotation")
+    public void testOneRotation() throws InterruptedException {
+        deduplicator.processed("sensor-1", "42");
+        Thread.sleep(ROTATION_MILLIS);
+
+        Assertions.assertTrue(deduplicator.isDuplicate("sensor-1", "42"));
+    }
+
+    @Test
+    @DisplayName("a processed event is forgotten after two rotations")
+    public void testTwoRotations() throws InterruptedException {
+        deduplicator.processed("sensor-1", "42");
+        Thread.sleep(ROTATION_MILLIS);
+        deduplicator.processed("sensor-1", "43");
+        Thread.sleep(ROTATION_MILLIS);
+
+        Assertions.assertFalse(deduplicator.isDuplicate("sensor-1", "42"));
+        Assertions.assertTrue(deduplicator.isDuplicate("sensor-1", "43"));
+    }
+
+    @Test
+    @DisplayName("a disabled deduplicator never reports duplicates")
+    public void testDisabled() {
+        EventDeduplicator disabled = new EventDeduplicator(registry, false, WINDOW, 1000, 0.001);
+        disabled.processed("sensor-1", "42");
+
+        Assertions.assertFalse(disabled.isDuplicate("sensor-1", "42"));
+    }
+}
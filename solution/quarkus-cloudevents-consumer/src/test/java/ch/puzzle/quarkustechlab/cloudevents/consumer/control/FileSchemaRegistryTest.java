@@ -0,0 +1,54 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+public class FileSchemaRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("registering assigns new ids and returns the existing id for a known schema")
+    public void testRegister() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(directory);
+
+        long first = registry.register("{\"type\":\"string\"}");
+        long second = registry.register("{\"type\":\"long\"}");
+
+        Assertions.assertEquals(1, first);
+        Assertions.assertEquals(2, second);
+        Assertions.assertEquals(first, registry.register("{\"type\":\"string\"}"));
+        Assertions.assertEquals(Optional.of("{\"type\":\"long\"}"), registry.schema(second));
+        Assertions.assertEquals(Optional.empty(), registry.schema(3));
+    }
+
+    @Test
+    @DisplayName("ids stored elsewhere are kept and never overwritten")
+    public void testStore() {
+        FileSchemaRegistry registry = new FileSchemaRegistry(directory);
+
+        Assertions.assertTrue(registry.store(5, "{\"type\":\"string\"}"));
+        Assertions.assertFalse(registry.store(5, "{\"type\":\"long\"}"));
+
+        Assertions.assertEquals(Optional.of("{\"type\":\"string\"}"), registry.schema(5));
+        Assertions.assertEquals(6, registry.register("{\"type\":\"long\"}"));
+    }
+
+    @Test
+    @DisplayName("schemas registered by another process are found")
+    public void testShared() {
+        FileSchemaRegistry producer = new FileSchemaRegistry(directory);
+        FileSchemaRegistry consumer = new FileSchemaRegistry(directory);
+
+        long globalId = producer.register("{\"type\":\"string\"}");
+
+        Assertions.assertEquals(Optional.of(globalId), consumer.globalId("{\"type\":\"string\"}"));
+        Assertions.assertEquals(globalId, consumer.register("{\"type\":\"string\"}"));
+    }
+}
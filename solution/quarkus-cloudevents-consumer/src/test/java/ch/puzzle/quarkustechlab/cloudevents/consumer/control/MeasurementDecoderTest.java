@@ -0,0 +1,118 @@
+package ch.puzzle.quarkustechlab.cloudevents.consumer.control;
+
+import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import io.apicurio.registry.serde.SerdeConfig;
+import io.apicurio.registry.serde.avro.AvroKafkaSerializer;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import io.smallrye.reactive.messaging.kafka.KafkaConsumer;
+import io.smallrye.reactive.messaging.kafka.api.IncomingKafkaRecordMetadata;
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MeasurementDecoderTest {
+
+    private static final String TOPIC = "measurements";
+
+    private final AtomicInteger configurationLookups = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("binary events carry Avro that is only decoded on access")
+    public void testBinary() {
+        Map<String, Object> configuration = configuration();
+        Headers headers = new RecordHeaders();
+        byte[] bytes;
+        try (AvroKafkaSerializer<SensorMeasurement> serializer = new AvroKafkaSerializer<>()) {
+            serializer.configure(configuration, false);
+            bytes = serializer.serialize(TOPIC, headers, SensorMeasurement.newBuilder().setData(21.5).build());
+        }
+        MeasurementDecoder decoder = new MeasurementDecoder(kafkaClientService(configuration));
+
+        LazySensorMeasurement measurement = decoder.measurement(message(bytes, headers));
+
+        Assertions.assertFalse(measurement.isDecoded());
+        Assertions.assertEquals(0, configurationLookups.get());
+        Assertions.assertEquals(21.5, measurement.get().getData());
+        Assertions.assertTrue(measurement.isDecoded());
+        Assertions.assertSame(measurement.get(), measurement.get());
+
+        // the deserializer is configured once and shared by all events
+        Assertions.assertEquals(21.5, decoder.measurement(message(bytes, headers)).get().getData());
+        Assertions.assertEquals(1, configurationLookups.get());
+    }
+
+    @Test
+    @DisplayName("structured events carry the measurement as JSON data")
+    public void testStructured() {
+        MeasurementDecoder decoder = new MeasurementDecoder(kafkaClientService(Map.of()));
+
+        LazySensorMeasurement measurement = decoder.measurement(Message.of(new JsonObject().put("data", 3.25)));
+
+        Assertions.assertFalse(measurement.isDecoded());
+        Assertions.assertEquals(3.25, measurement.get().getData());
+        Assertions.assertTrue(measurement.isDecoded());
+    }
+
+    @Test
+    @DisplayName("measurements decoded by the channel are passed through")
+    public void testDecoded() {
+        MeasurementDecoder decoder = new MeasurementDecoder(kafkaClientService(Map.of()));
+        SensorMeasurement sensorMeasurement = SensorMeasurement.newBuilder().setData(1).build();
+
+        Assertions.assertSame(sensorMeasurement, decoder.measurement(Message.of(sensorMeasurement)).get());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.measurement(Message.of("data")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> decoder.measurement(Message.of(new byte[0])));
+    }
+
+    /**
+     * The offline schema cache registers and resolves the schema in the directory, so no registry is needed.
+     */
+    private Map<String, Object> configuration() {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(SerdeConfig.REGISTRY_URL, "http://localhost:1");
+        configuration.put(SerdeConfig.SCHEMA_RESOLVER, CachingSchemaResolver.class.getName());
+        configuration.put(CachingSchemaResolver.OFFLINE, "true");
+        configuration.put(CachingSchemaResolver.DIRECTORY, directory.toString());
+        return configuration;
+    }
+
+    private static Message<byte[]> message(byte[] bytes, Headers headers) {
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(TOPIC, 0, 0, ConsumerRecord.NO_TIMESTAMP, TimestampType.NO_TIMESTAMP_TYPE,
+                ConsumerRecord.NULL_SIZE, bytes.length, null, bytes, headers, Optional.empty());
+        return Message.of(bytes, Metadata.of(new IncomingKafkaRecordMetadata<>(record, TOPIC)));
+    }
+
+    private KafkaClientService kafkaClientService(Map<String, Object> configuration) {
+        KafkaConsumer<?, ?> consumer = (KafkaConsumer<?, ?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{KafkaConsumer.class}, (proxy, method, args) -> {
+            if (method.getName().equals("configuration")) {
+                configurationLookups.incrementAndGet();
+                return configuration;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        return (KafkaClientService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{KafkaClientService.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getConsumer")) {
+                return consumer;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -1,7 +1,12 @@
 package ch.puzzle.quarkustechlab.cloudevents.producer.boundary;
 
 import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
+import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -12,16 +17,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.UUID;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApplicationScoped
 public class KafkaProducer {
 
     private final Logger logger = LoggerFactory.getLogger(KafkaProducer.class);
 
+    // Avro measurements in binary mode, their JSON representation in structured mode
     @Channel("measurements")
     @Inject
-    Emitter<SensorMeasurement> sensorMeasurementEmitter;
+    Emitter<Object> sensorMeasurementEmitter;
+
+    @Inject
+    MeterRegistry registry;
 
     @ConfigProperty(name = "quarkus.uuid")
     String uuid;
@@ -29,22 +42,81 @@ public class KafkaProducer {
     @ConfigProperty(name = "quarkus.application.name")
     String applicationName;
 
-    public void emitEvent(SensorMeasurement sensorMeasurement) {
+    @ConfigProperty(name = "mp.messaging.outgoing.measurements.cloud-events-mode", defaultValue = "binary")
+    String cloudEventsMode;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private URI source;
+    private boolean structured;
+    private Counter sent;
+    private Counter failed;
+    private Timer sendLatency;
+
+    @PostConstruct
+    void init() {
+        // the source is unique per instance, so a counter is enough to make the event ids unique
+        source = URI.create(applicationName + "-" + uuid);
+        structured = "structured".equals(cloudEventsMode);
+        sent = registry.counter("producer_messages", "result", "sent");
+        failed = registry.counter("producer_messages", "result", "failed");
+        sendLatency = Timer.builder("producer_send_latency").publishPercentileHistogram().register(registry);
+    }
+
+    /**
+     * Sends the measurement as cloud event, the returned stage completes once Kafka acknowledged it.
+     */
+    public CompletionStage<Void> emitEvent(SensorMeasurement sensorMeasurement) {
         OutgoingCloudEventMetadata<Object> metadata = OutgoingCloudEventMetadata.builder()
-                .withId(UUID.randomUUID().toString())
-                .withSource(URI.create(applicationName+"-"+uuid))
+                .withId(Long.toString(sequence.incrementAndGet()))
+                .withSource(source)
                 .withType("measurement-emitted")
                 .withSubject("subject-123")
                 .build();
 
-        logger.info("Producing Cloud Event, (spec-version: {}): id: '{}', source:  '{}', type: '{}', subject: '{}', payload-message: '{}' ",
-                metadata.getSpecVersion(),
-                metadata.getId(),
-                metadata.getSource(),
-                metadata.getType(),
-                metadata.getSubject().orElse("no subject"),
-                sensorMeasurement);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Producing Cloud Event, (spec-version: {}): id: '{}', source:  '{}', type: '{}', subject: '{}', payload-message: '{}' ",
+                    metadata.getSpecVersion(),
+                    metadata.getId(),
+                    metadata.getSource(),
+                    metadata.getType(),
+                    metadata.getSubject().orElse("no subject"),
+                    sensorMeasurement);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        Message<Object> message = Message.of(structured ? toJson(sensorMeasurement) : sensorMeasurement,
+                () -> {
+                    sent.increment();
+                    sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    acknowledged.complete(null);
+                    return CompletableFuture.completedFuture(null);
+                },
+                failure -> {
+                    failed.increment();
+                    acknowledged.completeExceptionally(failure);
+                    return CompletableFuture.completedFuture(null);
+                });
+        sensorMeasurementEmitter.send(message.addMetadata(metadata));
+        return acknowledged;
+    }
+
+    /**
+     * Sends all measurements, the returned stage completes once Kafka acknowledged every one of them.
+     */
+    public CompletionStage<Void> emitEvents(List<SensorMeasurement> sensorMeasurements) {
+        CompletableFuture<?>[] acknowledged = new CompletableFuture<?>[sensorMeasurements.size()];
+        for (int i = 0; i < acknowledged.length; i++) {
+            acknowledged[i] = emitEvent(sensorMeasurements.get(i)).toCompletableFuture();
+        }
+        logger.debug("Produced {} Cloud Events", acknowledged.length);
+        return CompletableFuture.allOf(acknowledged);
+    }
 
-        sensorMeasurementEmitter.send(Message.of(sensorMeasurement).addMetadata(metadata));
+    /**
+     * Structured cloud events are JSON documents, so the data has to be JSON as well. The Avro object cannot be mapped.
+     */
+    private static JsonObject toJson(SensorMeasurement sensorMeasurement) {
+        return new JsonObject().put("data", sensorMeasurement.getData());
     }
-}
\ No newline at end of file
+}
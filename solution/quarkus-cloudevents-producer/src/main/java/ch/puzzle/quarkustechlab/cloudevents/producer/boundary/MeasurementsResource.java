@@ -1,15 +1,23 @@
 package ch.puzzle.quarkustechlab.cloudevents.producer.boundary;
 
 import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Response;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Path("/measurements")
 public class MeasurementsResource {
 
+    static final int MAX_BATCH_SIZE = 1000;
+
     private final KafkaProducer kafkaProducer;
 
     public MeasurementsResource(KafkaProducer kafkaProducer) {
@@ -18,8 +26,24 @@ public class MeasurementsResource {
 
     @POST
     public Response emitMeasurement() {
-        SensorMeasurement measurement = SensorMeasurement.newBuilder().setData(new Random().nextDouble()).build();
-        kafkaProducer.emitEvent(measurement);
+        kafkaProducer.emitEvent(randomMeasurement());
         return Response.ok().build();
     }
-}
\ No newline at end of file
+
+    @POST
+    @Path("/batch")
+    public CompletionStage<Response> emitMeasurements(@QueryParam("count") @DefaultValue("100") int count) {
+        if (count < 1 || count > MAX_BATCH_SIZE) {
+            throw new BadRequestException("count must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        List<SensorMeasurement> measurements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            measurements.add(randomMeasurement());
+        }
+        return kafkaProducer.emitEvents(measurements).thenApply(ignored -> Response.ok().build());
+    }
+
+    private static SensorMeasurement randomMeasurement() {
+        return SensorMeasurement.newBuilder().setData(ThreadLocalRandom.current().nextDouble()).build();
+    }
+}
@@ -0,0 +1,100 @@
+package ch.puzzle.quarkustechlab.cloudevents.producer.control;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Minimal stand-in for the schema registry: every schema is a {@code <globalId>.avsc} file in one directory. Producer
+ * and consumer can share the directory, new schemas get the next free global id and files are never overwritten.
+ */
+class FileSchemaRegistry {
+
+    private static final String SUFFIX = ".avsc";
+
+    private final Path directory;
+    private final Map<String, Long> globalIds = new ConcurrentHashMap<>();
+
+    FileSchemaRegistry(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create schema directory " + directory, e);
+        }
+        scan();
+    }
+
+    Optional<Long> globalId(String schema) {
+        Long globalId = globalIds.get(schema);
+        if (globalId == null) {
+            // another process may have registered it in the meantime
+            scan();
+            globalId = globalIds.get(schema);
+        }
+        return Optional.ofNullable(globalId);
+    }
+
+    Optional<String> schema(long globalId) {
+        Path file = directory.resolve(globalId + SUFFIX);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read schema " + file, e);
+        }
+    }
+
+    synchronized long register(String schema) {
+        Optional<Long> existing = globalId(schema);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        long globalId = globalIds.values().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        while (!store(globalId, schema)) {
+            globalId++;
+        }
+        return globalId;
+    }
+
+    /**
+     * Stores a schema under an id assigned elsewhere, e.g. by the real registry. Returns false if the id is taken.
+     */
+    boolean store(long globalId, String schema) {
+        try {
+            Files.writeString(directory.resolve(globalId + SUFFIX), schema, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+            globalIds.putIfAbsent(schema, globalId);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write schema " + globalId + " to " + directory, e);
+        }
+    }
+
+    private void scan() {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(file -> {
+                String name = file.getFileName().toString();
+                try {
+                    long globalId = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                    globalIds.putIfAbsent(Files.readString(file, StandardCharsets.UTF_8), globalId);
+                } catch (NumberFormatException | IOException e) {
+                    // not one of ours or still being written
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list schema directory " + directory, e);
+        }
+    }
+}
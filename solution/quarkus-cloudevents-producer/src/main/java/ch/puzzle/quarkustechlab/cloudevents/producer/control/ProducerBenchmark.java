@@ -0,0 +1,181 @@
+package ch.puzzle.quarkustechlab.cloudevents.producer.control;
+
+import ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement;
+import ch.puzzle.quarkustechlab.cloudevents.producer.boundary.KafkaProducer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark mode: sends measurements as fast as Kafka acknowledges them, with at most {@code max-outstanding}
+ * unacknowledged events, one by one or in batches of {@code batch-size} like {@code POST /measurements/batch}. After a
+ * warm-up it logs the throughput in messages and bytes per second, the CPU time and bytes per event, the send latency
+ * percentiles and the batching figures of the Kafka producer. Run it with a tuning preset or the structured cloud
+ * events mode to compare settings, e.g. {@code ./mvnw quarkus:dev -Dquarkus.profile=dev,benchmark,measurements-throughput}.
+ */
+@ApplicationScoped
+public class ProducerBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerBenchmark.class);
+    private static final String CHANNEL = "measurements";
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final KafkaProducer kafkaProducer;
+    private final KafkaClientService kafkaClientService;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int maxOutstanding;
+    private final int batchSize;
+    private final String cloudEventsMode;
+    private final Duration warmup;
+    private final Duration duration;
+    private volatile boolean running;
+
+    public ProducerBenchmark(KafkaProducer kafkaProducer, KafkaClientService kafkaClientService, MeterRegistry registry,
+                             @ConfigProperty(name = "producer.benchmark.enabled", defaultValue = "false") boolean enabled,
+                             @ConfigProperty(name = "producer.benchmark.max-outstanding", defaultValue = "1000") int maxOutstanding,
+                             @ConfigProperty(name = "producer.benchmark.batch-size", defaultValue = "1") int batchSize,
+                             @ConfigProperty(name = "mp.messaging.outgoing.measurements.cloud-events-mode", defaultValue = "binary") String cloudEventsMode,
+                             @ConfigProperty(name = "producer.benchmark.warmup", defaultValue = "10s") Duration warmup,
+                             @ConfigProperty(name = "producer.benchmark.duration", defaultValue = "30s") Duration duration) {
+        this.kafkaProducer = kafkaProducer;
+        this.kafkaClientService = kafkaClientService;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.maxOutstanding = Math.max(maxOutstanding, batchSize);
+        this.batchSize = batchSize;
+        this.cloudEventsMode = cloudEventsMode;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled) {
+            Thread thread = new Thread(this::run, "producer-benchmark");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        Map<String, ?> configuration = kafkaClientService.getProducer(CHANNEL).configuration();
+        logger.info("Benchmark of channel {} with {} outstanding events in batches of {}: warm-up {}, measuring {}, cloud-events-mode={}, batch.size={}, linger.ms={}, compression.type={}, acks={}, enable.idempotence={}, max.in.flight.requests.per.connection={}",
+                CHANNEL, maxOutstanding, batchSize, warmup, duration, cloudEventsMode, configuration.get("batch.size"), configuration.get("linger.ms"),
+                configuration.get("compression.type"), configuration.get("acks"), configuration.get("enable.idempotence"),
+                configuration.get("max.in.flight.requests.per.connection"));
+        running = true;
+        Thread sender = new Thread(this::send, "producer-benchmark-sender");
+        sender.setDaemon(true);
+        sender.start();
+        try {
+            Thread.sleep(warmup.toMillis());
+            Snapshot start = snapshot();
+            Thread.sleep(duration.toMillis());
+            Snapshot end = snapshot();
+            report(start, end);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    private void send() {
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        try {
+            while (running) {
+                if (batchSize == 1) {
+                    outstanding.acquire();
+                    kafkaProducer.emitEvent(randomMeasurement()).whenComplete((ignored, failure) -> outstanding.release());
+                } else {
+                    outstanding.acquire(batchSize);
+                    List<SensorMeasurement> measurements = new ArrayList<>(batchSize);
+                    for (int i = 0; i < batchSize; i++) {
+                        measurements.add(randomMeasurement());
+                    }
+                    kafkaProducer.emitEvents(measurements).whenComplete((ignored, failure) -> outstanding.release(batchSize));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SensorMeasurement randomMeasurement() {
+        return SensorMeasurement.newBuilder().setData(ThreadLocalRandom.current().nextDouble()).build();
+    }
+
+    private Snapshot snapshot() {
+        Timer latency = registry.get("producer_send_latency").timer();
+        double sent = registry.get("producer_messages").tag("result", "sent").counter().count();
+        return new Snapshot(System.nanoTime(), processCpuNanos(), sent, producerMetric("outgoing-byte-total"), latency.takeSnapshot().histogramCounts());
+    }
+
+    private void report(Snapshot start, Snapshot end) {
+        double seconds = (end.nanos - start.nanos) / 1e9;
+        double messages = end.sent - start.sent;
+        if (messages == 0) {
+            logger.warn("Benchmark result: no message was acknowledged within {}", duration);
+            return;
+        }
+        StringBuilder percentiles = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            percentiles.append(String.format(" p%s=%.2fms", BigDecimal.valueOf(percentile * 100).stripTrailingZeros().toPlainString(),
+                    percentile(start.latency, end.latency, messages * percentile)));
+        }
+        logger.info("Benchmark result: {} msg/s, {} bytes/s, {} us CPU/event, {} bytes/event, send latency{}, batch-size-avg={}, record-size-avg={}, compression-rate-avg={}",
+                String.format("%.0f", messages / seconds), String.format("%.0f", (end.bytes - start.bytes) / seconds),
+                String.format("%.2f", (end.cpuNanos - start.cpuNanos) / messages / 1000), String.format("%.1f", (end.bytes - start.bytes) / messages), percentiles,
+                producerMetric("batch-size-avg"), producerMetric("record-size-avg"), producerMetric("compression-rate-avg"));
+    }
+
+    /**
+     * Upper bound of the histogram bucket containing the given rank, counted over the interval between the snapshots.
+     */
+    static double percentile(CountAtBucket[] start, CountAtBucket[] end, double rank) {
+        for (int i = 0; i < end.length; i++) {
+            if (end[i].count() - start[i].count() >= rank) {
+                return end[i].bucket(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double producerMetric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : kafkaClientService.getProducer(CHANNEL).unwrap().metrics().entrySet()) {
+            if (metric.getKey().group().equals("producer-metrics") && metric.getKey().name().equals(name)) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * CPU time of the whole process, which includes the Kafka producer's sender thread and serialization.
+     */
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private record Snapshot(long nanos, long cpuNanos, double sent, double bytes, CountAtBucket[] latency) {
+    }
+}
@@ -0,0 +1,54 @@
+package ch.puzzle.quarkustechlab.cloudevents.producer.control;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports the hits and misses of the {@link CachingSchemaResolver}s. The serdes create the resolvers themselves, so
+ * they can't be injected and look this bean up with {@link #current()} instead. The counts live as long as the
+ * application, a dev mode restart starts again at zero. A miss is a lookup in the registry (or the schema directory in
+ * offline mode), in steady state only hits should grow.
+ */
+@ApplicationScoped
+public class SchemaCacheMetrics {
+
+    private final MeterRegistry registry;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SchemaCacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        FunctionCounter.builder("schema_cache_requests", hits, LongAdder::doubleValue)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("schema_cache_requests", misses, LongAdder::doubleValue)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * The metrics of the running application, null outside of one, e.g. in a plain unit test.
+     */
+    static SchemaCacheMetrics current() {
+        ArcContainer container = Arc.container();
+        return container != null && container.isRunning() ? container.instance(SchemaCacheMetrics.class).get() : null;
+    }
+}
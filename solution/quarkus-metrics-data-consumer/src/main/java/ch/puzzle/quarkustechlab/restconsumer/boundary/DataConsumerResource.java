@@ -1,6 +1,7 @@
 package ch.puzzle.quarkustechlab.restconsumer.boundary;
 
 import ch.puzzle.quarkustechlab.restconsumer.control.HealthService;
+import ch.puzzle.quarkustechlab.restconsumer.control.MeasurementCache;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.inject.Inject;
@@ -29,6 +30,9 @@ public class DataConsumerResource {
     @Inject
     HealthService healthService;
 
+    @Inject
+    MeasurementCache measurementCache;
+
     public DataConsumerResource(MeterRegistry registry) {
         this.registry = registry;
     }
@@ -39,7 +43,7 @@ public class DataConsumerResource {
     public SensorMeasurement getData() {
         logger.info("Collecting data from producer");
         Supplier<SensorMeasurement> supplier = () -> dataProducerService.getSensorMeasurement();
-        SensorMeasurement sensorMeasurement = registry.timer("REST_call_data").wrap(supplier).get();
+        SensorMeasurement sensorMeasurement = measurementCache.get(registry.timer("REST_call_data").wrap(supplier));
         logger.info("Returning data");
         healthService.registerMessageFetch();
         return sensorMeasurement;
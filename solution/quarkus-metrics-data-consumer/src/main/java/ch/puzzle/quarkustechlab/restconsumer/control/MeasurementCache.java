@@ -0,0 +1,125 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Sits in front of the producer call. Concurrent callers share a single in-flight upstream request (single flight) and,
+ * if enabled, a successful response is served from memory for the configured TTL. Within the stale-while-revalidate
+ * window a stale value is returned immediately while one background request refreshes it. Requests are counted as
+ * {@code producer_cache_requests} by result: hit, stale, miss or coalesced.
+ */
+@ApplicationScoped
+public class MeasurementCache {
+
+    private final boolean coalescing;
+    private final boolean cacheEnabled;
+    private final long ttlNanos;
+    private final long staleWhileRevalidateNanos;
+    private final ManagedExecutor executor;
+    private final AtomicReference<CompletableFuture<SensorMeasurement>> inFlight = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private volatile Entry entry;
+
+    public MeasurementCache(MeterRegistry registry, ManagedExecutor executor,
+                            @ConfigProperty(name = "consumer.coalescing.enabled", defaultValue = "true") boolean coalescing,
+                            @ConfigProperty(name = "consumer.cache.enabled", defaultValue = "false") boolean cacheEnabled,
+                            @ConfigProperty(name = "consumer.cache.ttl", defaultValue = "1s") Duration ttl,
+                            @ConfigProperty(name = "consumer.cache.stale-while-revalidate", defaultValue = "0s") Duration staleWhileRevalidate) {
+        this.executor = executor;
+        this.coalescing = coalescing;
+        this.cacheEnabled = cacheEnabled;
+        this.ttlNanos = ttl.toNanos();
+        this.staleWhileRevalidateNanos = staleWhileRevalidate.toNanos();
+        this.hits = registry.counter("producer_cache_requests", "result", "hit");
+        this.staleHits = registry.counter("producer_cache_requests", "result", "stale");
+        this.misses = registry.counter("producer_cache_requests", "result", "miss");
+        this.coalesced = registry.counter("producer_cache_requests", "result", "coalesced");
+    }
+
+    public SensorMeasurement get(Supplier<SensorMeasurement> upstream) {
+        Entry current = entry;
+        if (cacheEnabled && current != null) {
+            long age = System.nanoTime() - current.loadedAt;
+            if (age < ttlNanos) {
+                hits.increment();
+                return current.value;
+            }
+            if (age < ttlNanos + staleWhileRevalidateNanos) {
+                staleHits.increment();
+                refresh(upstream);
+                return current.value;
+            }
+        }
+        return load(upstream);
+    }
+
+    /**
+     * Starts a background refresh unless one is running already, concurrent stale hits share it.
+     */
+    private void refresh(Supplier<SensorMeasurement> upstream) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.runAsync(() -> load(upstream)).whenComplete((value, failure) -> refreshing.set(false));
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    private SensorMeasurement load(Supplier<SensorMeasurement> upstream) {
+        if (!coalescing) {
+            misses.increment();
+            return store(upstream.get());
+        }
+        CompletableFuture<SensorMeasurement> future = new CompletableFuture<>();
+        CompletableFuture<SensorMeasurement> existing = inFlight.compareAndExchange(null, future);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        misses.increment();
+        try {
+            SensorMeasurement value = store(upstream.get());
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private SensorMeasurement store(SensorMeasurement value) {
+        // fallback measurements carry no data and must not be served from the cache
+        if (cacheEnabled && value != null && value.data != null) {
+            entry = new Entry(value, System.nanoTime());
+        }
+        return value;
+    }
+
+    private record Entry(SensorMeasurement value, long loadedAt) {
+    }
+}
@@ -1,10 +1,12 @@
 package ch.puzzle.quarkustechlab.metrics.producer.boundary;
 
 import ch.puzzle.quarkustechlab.metrics.producer.control.DummyService;
+import ch.puzzle.quarkustechlab.metrics.producer.control.LatencySimulator;
 import ch.puzzle.quarkustechlab.metrics.producer.entity.SensorMeasurement;
 import io.micrometer.core.annotation.Counted;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
@@ -13,19 +15,17 @@ import jakarta.ws.rs.core.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
-
 @Path("/data")
 public class DataResource {
 
     private static final Logger logger = LoggerFactory.getLogger(DataResource.class.getName());
 
-    Random random = new Random();
-
     @Inject
     DummyService dummyService;
 
+    @Inject
+    LatencySimulator latencySimulator;
+
     private Long gauge = 0L;
     private final MeterRegistry registry;
 
@@ -37,9 +37,8 @@ public class DataResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Timed(value = "GET_data", description = "Timer for the endpoint /data", extraTags = {"producer", "GET"})
-    public SensorMeasurement hello() throws InterruptedException {
-        Thread.sleep(ThreadLocalRandom.current().nextLong(0, 5_000));
-        return new SensorMeasurement();
+    public Uni<SensorMeasurement> hello() {
+        return latencySimulator.simulate(SensorMeasurement::new);
     }
 
     @GET
@@ -0,0 +1,89 @@
+package ch.puzzle.quarkustechlab.messaging.consumer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.consumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.OnOverflow;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Batch variant of {@link ReactiveDataConsumer}, active when built with {@code consumer.batch.enabled=true} (see the
+ * {@code batch} profile). Records of a poll are grouped by key, or by partition for records without a key. Groups are
+ * processed in parallel while the records of one group keep their order. The batch is acknowledged once, after all
+ * groups are done, which commits the latest offset of every partition in it.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "consumer.batch.enabled", stringValue = "true")
+public class BatchDataConsumer {
+
+    private final Emitter<SensorMeasurement> emitter;
+    private final int parallelism;
+    private final DistributionSummary batchSize;
+    private final Timer processingTime;
+    private final Timer recordAge;
+
+    public BatchDataConsumer(@Channel("in-memory-stream") @OnOverflow(OnOverflow.Strategy.LATEST) Emitter<SensorMeasurement> emitter,
+                             MeterRegistry registry,
+                             @ConfigProperty(name = "consumer.batch.parallelism", defaultValue = "8") int parallelism) {
+        this.emitter = emitter;
+        this.parallelism = parallelism;
+        this.batchSize = DistributionSummary.builder("consumer_batch_size").publishPercentileHistogram().register(registry);
+        this.processingTime = Timer.builder("consumer_processing").tag("mode", "batch").publishPercentileHistogram().register(registry);
+        this.recordAge = Timer.builder("consumer_record_age").publishPercentileHistogram().register(registry);
+    }
+
+    @Incoming("data")
+    public CompletionStage<Void> consume(KafkaRecordBatch<String, SensorMeasurement> batch) {
+        Timer.Sample sample = Timer.start();
+        batchSize.record(batch.getRecords().size());
+
+        Map<Object, List<KafkaRecord<String, SensorMeasurement>>> groups = new LinkedHashMap<>();
+        for (KafkaRecord<String, SensorMeasurement> record : batch) {
+            Object group = record.getKey() != null ? record.getKey() : record.getPartition();
+            groups.computeIfAbsent(group, k -> new ArrayList<>()).add(record);
+        }
+
+        return Multi.createFrom().iterable(groups.values())
+                .onItem().transformToUni(records -> Uni.createFrom().item(records)
+                        .emitOn(Infrastructure.getDefaultWorkerPool())
+                        .invoke(this::processInOrder))
+                .merge(parallelism)
+                .collect().last()
+                .chain(() -> Uni.createFrom().completionStage(batch.ack()))
+                .invoke(() -> sample.stop(processingTime))
+                .subscribeAsCompletionStage();
+    }
+
+    private void processInOrder(List<KafkaRecord<String, SensorMeasurement>> records) {
+        Instant now = Instant.now();
+        for (KafkaRecord<String, SensorMeasurement> record : records) {
+            if (record.getTimestamp() != null) {
+                recordAge.record(Duration.between(record.getTimestamp(), now));
+            }
+            process(record.getPayload());
+        }
+    }
+
+    private void process(SensorMeasurement sensorMeasurement) {
+        emitter.send(sensorMeasurement);
+    }
+}
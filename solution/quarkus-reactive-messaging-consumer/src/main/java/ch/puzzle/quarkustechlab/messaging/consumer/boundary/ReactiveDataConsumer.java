@@ -1,22 +1,38 @@
 package ch.puzzle.quarkustechlab.messaging.consumer.boundary;
 
 import ch.puzzle.quarkustechlab.messaging.consumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.eclipse.microprofile.reactive.messaging.Outgoing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @ApplicationScoped
+@UnlessBuildProperty(name = "consumer.batch.enabled", stringValue = "true", enableIfMissing = true)
 public class ReactiveDataConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(ReactiveDataConsumer.class.getName());
 
+    private final Timer processingTime;
+
+    public ReactiveDataConsumer(MeterRegistry registry) {
+        this.processingTime = Timer.builder("consumer_processing").tag("mode", "single").publishPercentileHistogram().register(registry);
+    }
+
+    /**
+     * Passes the measurement on to the in-memory stream. Like in batch mode, the processing time runs from receiving the
+     * record until it is acknowledged, which happens once the broadcaster has processed it.
+     */
     @Incoming("data")
     @Outgoing("in-memory-stream")
-    @Acknowledgment(Acknowledgment.Strategy.POST_PROCESSING)
-    public SensorMeasurement consume(SensorMeasurement sensorMeasurement) {
-        return sensorMeasurement;
+    @Acknowledgment(Acknowledgment.Strategy.MANUAL)
+    public Message<SensorMeasurement> consume(Message<SensorMeasurement> message) {
+        Timer.Sample sample = Timer.start();
+        return message.withAck(() -> message.ack().thenRun(() -> sample.stop(processingTime)));
     }
 }
@@ -0,0 +1,186 @@
+package ch.puzzle.quarkustechlab.messaging.consumer.control;
+
+import ch.puzzle.quarkustechlab.messaging.consumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans the in-memory stream out to any number of SSE subscribers. Every subscriber gets its own bounded buffer, so a
+ * slow client only affects itself: depending on the overflow policy it loses its oldest or newest buffered values or
+ * gets disconnected. With conflation enabled, subscribers receive the latest value once per interval instead of every
+ * value.
+ */
+@ApplicationScoped
+public class MeasurementBroadcaster {
+
+    public enum OverflowPolicy { DROP_OLDEST, DROP_NEWEST, DISCONNECT }
+
+    private final Set<BroadcastSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Counter drops;
+    private final Counter disconnects;
+    private final Cancellable conflationTicker;
+    private final AtomicInteger conflationVersion = new AtomicInteger();
+    private volatile SensorMeasurement latest;
+    private int flushedVersion;
+
+    public MeasurementBroadcaster(MeterRegistry registry,
+                                  @ConfigProperty(name = "consumer.broadcast.buffer-size", defaultValue = "64") int bufferSize,
+                                  @ConfigProperty(name = "consumer.broadcast.overflow", defaultValue = "drop-oldest") String overflowPolicy,
+                                  @ConfigProperty(name = "consumer.broadcast.conflation", defaultValue = "0s") Duration conflation) {
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase().replace('-', '_'));
+        this.drops = registry.counter("broadcast_dropped_messages", "policy", overflowPolicy);
+        this.disconnects = registry.counter("broadcast_disconnected_subscribers");
+        Gauge.builder("broadcast_subscribers", subscriptions, Set::size).register(registry);
+        Gauge.builder("broadcast_queue_depth_max", this, MeasurementBroadcaster::maxQueueDepth).register(registry);
+        this.conflationTicker = conflation.isZero()
+                ? null
+                : Multi.createFrom().ticks().every(conflation).subscribe().with(tick -> flushConflated());
+    }
+
+    void onShutDown(@Observes ShutdownEvent ev) {
+        if (conflationTicker != null) {
+            conflationTicker.cancel();
+        }
+    }
+
+    @Incoming("in-memory-stream")
+    public void publish(SensorMeasurement sensorMeasurement) {
+        if (conflationTicker != null) {
+            latest = sensorMeasurement;
+            conflationVersion.incrementAndGet();
+            return;
+        }
+        subscriptions.forEach(subscription -> subscription.offer(sensorMeasurement));
+    }
+
+    public Multi<SensorMeasurement> subscribe() {
+        return Multi.createFrom().publisher(subscriber -> {
+            BroadcastSubscription subscription = new BroadcastSubscription(subscriber);
+            subscriptions.add(subscription);
+            subscriber.onSubscribe(subscription);
+        });
+    }
+
+    private synchronized void flushConflated() {
+        int version = conflationVersion.get();
+        SensorMeasurement value = latest;
+        if (value != null && version != flushedVersion) {
+            flushedVersion = version;
+            subscriptions.forEach(subscription -> subscription.offer(value));
+        }
+    }
+
+    private double maxQueueDepth() {
+        int max = 0;
+        for (BroadcastSubscription subscription : subscriptions) {
+            max = Math.max(max, subscription.depth());
+        }
+        return max;
+    }
+
+    private final class BroadcastSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super SensorMeasurement> downstream;
+        private final ArrayDeque<SensorMeasurement> queue = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean overflowed;
+
+        BroadcastSubscription(Flow.Subscriber<? super SensorMeasurement> downstream) {
+            this.downstream = downstream;
+        }
+
+        void offer(SensorMeasurement sensorMeasurement) {
+            synchronized (queue) {
+                if (queue.size() < bufferSize) {
+                    queue.offer(sensorMeasurement);
+                } else {
+                    switch (overflowPolicy) {
+                        case DROP_OLDEST -> {
+                            queue.poll();
+                            queue.offer(sensorMeasurement);
+                            drops.increment();
+                        }
+                        case DROP_NEWEST -> drops.increment();
+                        case DISCONNECT -> overflowed = true;
+                    }
+                }
+            }
+            drain();
+        }
+
+        int depth() {
+            synchronized (queue) {
+                return queue.size();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("Invalid request: " + n));
+                return;
+            }
+            requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (overflowed && !cancelled) {
+                    cancel();
+                    disconnects.increment();
+                    downstream.onComplete();
+                }
+                long emitted = 0;
+                long demand = requested.get();
+                while (emitted < demand && !cancelled) {
+                    SensorMeasurement next;
+                    synchronized (queue) {
+                        next = queue.poll();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    downstream.onNext(next);
+                    emitted++;
+                }
+                if (emitted > 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
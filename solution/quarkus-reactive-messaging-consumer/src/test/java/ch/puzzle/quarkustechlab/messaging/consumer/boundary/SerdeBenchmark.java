@@ -0,0 +1,91 @@
+package ch.puzzle.quarkustechlab.messaging.consumer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.consumer.entity.SensorMeasurement;
+import io.quarkus.kafka.client.serialization.JsonbSerializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the serdes of the data channel. Not a test, run it after {@code ./mvnw test-compile} with
+ * <pre>
+ * ./mvnw exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath ch.puzzle.quarkustechlab.messaging.consumer.boundary.SerdeBenchmark"
+ * </pre>
+ * JMH reports ns/op for serialization and deserialization, the record sizes are printed before the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerdeBenchmark {
+
+    private static final String TOPIC = "data";
+
+    @Param({"jsonb", "binary", "avro"})
+    public String format;
+
+    private Serializer<SensorMeasurement> serializer;
+    private Deserializer<SensorMeasurement> deserializer;
+    private SensorMeasurement measurement;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        serializer = serializer(format);
+        deserializer = deserializer(format);
+        measurement = new SensorMeasurement(Math.random(), Instant.now());
+        bytes = serializer.serialize(TOPIC, measurement);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, measurement);
+    }
+
+    @Benchmark
+    public SensorMeasurement deserialize() {
+        return deserializer.deserialize(TOPIC, bytes);
+    }
+
+    private static Serializer<SensorMeasurement> serializer(String format) {
+        return switch (format) {
+            case "jsonb" -> new JsonbSerializer<>();
+            case "binary" -> new SensorMeasurementBinarySerde();
+            case "avro" -> new SensorMeasurementAvroSerde();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    private static Deserializer<SensorMeasurement> deserializer(String format) {
+        return switch (format) {
+            case "jsonb" -> new SensorMeasurementDeserializer();
+            case "binary" -> new SensorMeasurementBinarySerde();
+            case "avro" -> new SensorMeasurementAvroSerde();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        SensorMeasurement measurement = new SensorMeasurement(Math.random(), Instant.now());
+        for (String format : new String[]{"jsonb", "binary", "avro"}) {
+            System.out.printf("%-6s %3d bytes/record%n", format, serializer(format).serialize(TOPIC, measurement).length);
+        }
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[]{SerdeBenchmark.class.getSimpleName()});
+    }
+}
@@ -0,0 +1,66 @@
+package ch.puzzle.quarkustechlab.messaging.producer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.producer.control.LoadGenerator;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.Arrays;
+
+@Path("/load")
+@Produces(MediaType.APPLICATION_JSON)
+public class LoadGeneratorResource {
+
+    @Inject
+    LoadGenerator loadGenerator;
+
+    @GET
+    public LoadStatus status() {
+        return new LoadStatus(loadGenerator.isRunning(), loadGenerator.getProfile(), loadGenerator.getRate(),
+                loadGenerator.getAchievedRate(), loadGenerator.getSensors());
+    }
+
+    @POST
+    @Path("/start")
+    public LoadStatus start(@QueryParam("rate") Double rate, @QueryParam("profile") String profile) {
+        if (rate != null) {
+            validateRate(rate);
+        }
+        if (profile != null && Arrays.stream(LoadGenerator.Profile.values()).noneMatch(p -> p.name().equalsIgnoreCase(profile))) {
+            throw new BadRequestException("profile must be one of " + Arrays.toString(LoadGenerator.Profile.values()));
+        }
+        loadGenerator.start(rate, profile);
+        return status();
+    }
+
+    @POST
+    @Path("/stop")
+    public LoadStatus stop() {
+        loadGenerator.stop();
+        return status();
+    }
+
+    @PUT
+    @Path("/rate/{rate}")
+    public LoadStatus rate(@PathParam("rate") double rate) {
+        validateRate(rate);
+        loadGenerator.setRate(rate);
+        return status();
+    }
+
+    private static void validateRate(double rate) {
+        if (!(rate > 0 && rate <= LoadGenerator.MAX_RATE)) {
+            throw new BadRequestException("rate must be greater than 0 and at most " + (long) LoadGenerator.MAX_RATE + " messages per second");
+        }
+    }
+
+    public record LoadStatus(boolean running, LoadGenerator.Profile profile, double targetRate, double achievedRate, int sensors) {
+    }
+}
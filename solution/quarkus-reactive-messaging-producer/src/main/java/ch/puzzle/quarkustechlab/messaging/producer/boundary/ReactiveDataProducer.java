@@ -1,20 +1,21 @@
 package ch.puzzle.quarkustechlab.messaging.producer.boundary;
 
+import ch.puzzle.quarkustechlab.messaging.producer.control.LoadGenerator;
 import ch.puzzle.quarkustechlab.messaging.producer.entity.SensorMeasurement;
 import io.smallrye.mutiny.Multi;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.eclipse.microprofile.reactive.messaging.Outgoing;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Random;
-
 @ApplicationScoped
 public class ReactiveDataProducer {
 
+    @Inject
+    LoadGenerator loadGenerator;
+
     @Outgoing("data")
-    public Multi<SensorMeasurement> produceData() {
-        return Multi.createFrom().ticks().every(Duration.ofSeconds(2))
-                .onItem().transform(i -> new SensorMeasurement(new Random().nextDouble(), Instant.now()));
+    public Multi<Message<SensorMeasurement>> produceData() {
+        return loadGenerator.messages();
     }
 }
@@ -0,0 +1,71 @@
+package ch.puzzle.quarkustechlab.messaging.producer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.producer.entity.SensorMeasurement;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Avro binary format for the data channel, based on the cloudevents SensorMeasurement schema extended by an optional
+ * time. The records carry no schema registry header, both sides use the schema compiled from {@code src/main/avro}.
+ * A missing value is written as NaN since the schema declares it as plain double.
+ */
+public class SensorMeasurementAvroSerde implements Serializer<SensorMeasurement>, Deserializer<SensorMeasurement> {
+
+    private static final DatumWriter<ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement> writer =
+            new SpecificDatumWriter<>(ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement.class);
+    private static final DatumReader<ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement> reader =
+            new SpecificDatumReader<>(ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement.class);
+
+    @Override
+    public byte[] serialize(String topic, SensorMeasurement sensorMeasurement) {
+        if (sensorMeasurement == null) {
+            return null;
+        }
+        ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement record = new ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement(
+                sensorMeasurement.data != null ? sensorMeasurement.data : Double.NaN, sensorMeasurement.time);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(record, encoder);
+        } catch (IOException e) {
+            throw new SerializationException("Could not serialize SensorMeasurement", e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public SensorMeasurement deserialize(String topic, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+        try {
+            ch.puzzle.quarkustechlab.cloudevents.SensorMeasurement record = reader.read(null, decoder);
+            double data = record.getData();
+            return new SensorMeasurement(Double.isNaN(data) ? null : data, record.getTime());
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Could not deserialize SensorMeasurement", e);
+        }
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
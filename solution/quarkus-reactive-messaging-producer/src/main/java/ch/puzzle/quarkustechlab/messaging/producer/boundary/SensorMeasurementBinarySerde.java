@@ -0,0 +1,68 @@
+package ch.puzzle.quarkustechlab.messaging.producer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.producer.entity.SensorMeasurement;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * Fixed-width binary format for the data channel, 17 bytes per record: a flag byte marking which fields are present,
+ * the value as IEEE 754 double and the time as microseconds since the epoch (the precision of the Avro schema).
+ * Producer and consumer must be configured with the same serde.
+ */
+public class SensorMeasurementBinarySerde implements Serializer<SensorMeasurement>, Deserializer<SensorMeasurement> {
+
+    static final int SIZE = 1 + Double.BYTES + Long.BYTES;
+
+    private static final byte DATA_PRESENT = 1;
+    private static final byte TIME_PRESENT = 2;
+
+    @Override
+    public byte[] serialize(String topic, SensorMeasurement sensorMeasurement) {
+        if (sensorMeasurement == null) {
+            return null;
+        }
+        byte flags = 0;
+        double data = 0;
+        long time = 0;
+        if (sensorMeasurement.data != null) {
+            flags |= DATA_PRESENT;
+            data = sensorMeasurement.data;
+        }
+        if (sensorMeasurement.time != null) {
+            flags |= TIME_PRESENT;
+            time = ChronoUnit.MICROS.between(Instant.EPOCH, sensorMeasurement.time);
+        }
+        return ByteBuffer.allocate(SIZE).put(flags).putDouble(data).putLong(time).array();
+    }
+
+    @Override
+    public SensorMeasurement deserialize(String topic, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != SIZE) {
+            throw new SerializationException("Expected " + SIZE + " bytes for a SensorMeasurement but got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte flags = buffer.get();
+        double data = buffer.getDouble();
+        long time = buffer.getLong();
+        return new SensorMeasurement(
+                (flags & DATA_PRESENT) != 0 ? data : null,
+                (flags & TIME_PRESENT) != 0 ? Instant.EPOCH.plus(time, ChronoUnit.MICROS) : null);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,185 @@
+package ch.puzzle.quarkustechlab.messaging.producer.control;
+
+import ch.puzzle.quarkustechlab.messaging.producer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates measurements at a configurable rate, from a fraction of a message per second up to {@link #MAX_RATE}.
+ * Every tick emits the messages owed since the previous one, so the rate does not depend on the tick interval. The
+ * target rate can follow a burst profile and the messages are keyed by a simulated sensor id, which spreads them over
+ * the partitions. When Kafka cannot keep up, ticks are dropped and the achieved rate stays below the target.
+ */
+@ApplicationScoped
+public class LoadGenerator {
+
+    public enum Profile { CONSTANT, SQUARE, SINE }
+
+    public static final double MAX_RATE = 1_000_000;
+
+    private static final Duration TICK = Duration.ofMillis(10);
+    // at most this much backlog is caught up after a stall, the rest is lost
+    private static final long MAX_CATCH_UP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String[] keys;
+    private final long burstPeriodNanos;
+    private final long burstLengthNanos;
+    private final double burstFactor;
+    private final long startNanos = System.nanoTime();
+    private final Counter generated;
+    private final Counter sent;
+    private final Counter failures;
+    private final Counter droppedTicks;
+    private final Timer sendLatency;
+    private volatile boolean running;
+    private volatile double rate;
+    private volatile Profile profile;
+    private double credit;
+    private long sequence;
+    private long lastTickNanos = startNanos;
+    private long windowStartNanos = startNanos;
+    private long windowStartCount;
+    private double achievedRate;
+
+    public LoadGenerator(MeterRegistry registry,
+                         @ConfigProperty(name = "producer.load.enabled", defaultValue = "true") boolean enabled,
+                         @ConfigProperty(name = "producer.load.rate", defaultValue = "0.5") double rate,
+                         @ConfigProperty(name = "producer.load.profile", defaultValue = "constant") String profile,
+                         @ConfigProperty(name = "producer.load.sensors", defaultValue = "1") int sensors,
+                         @ConfigProperty(name = "producer.load.burst-period", defaultValue = "10s") Duration burstPeriod,
+                         @ConfigProperty(name = "producer.load.burst-length", defaultValue = "1s") Duration burstLength,
+                         @ConfigProperty(name = "producer.load.burst-factor", defaultValue = "10") double burstFactor) {
+        this.running = enabled;
+        this.rate = rate;
+        this.profile = Profile.valueOf(profile.toUpperCase());
+        this.keys = new String[sensors];
+        for (int i = 0; i < sensors; i++) {
+            keys[i] = "sensor-" + i;
+        }
+        this.burstPeriodNanos = burstPeriod.toNanos();
+        this.burstLengthNanos = burstLength.toNanos();
+        this.burstFactor = burstFactor;
+        this.generated = registry.counter("producer_load_messages", "result", "generated");
+        this.sent = registry.counter("producer_load_messages", "result", "sent");
+        this.failures = registry.counter("producer_load_messages", "result", "failed");
+        this.droppedTicks = registry.counter("producer_load_dropped_ticks");
+        this.sendLatency = Timer.builder("producer_load_send_latency").publishPercentileHistogram().register(registry);
+        Gauge.builder("producer_load_target_rate", this, generator -> generator.running ? generator.currentRate(System.nanoTime()) : 0).register(registry);
+        Gauge.builder("producer_load_achieved_rate", this, LoadGenerator::getAchievedRate).register(registry);
+    }
+
+    public Multi<Message<SensorMeasurement>> messages() {
+        return Multi.createFrom().ticks().every(TICK)
+                .onOverflow().invoke(tick -> droppedTicks.increment()).drop()
+                .onItem().transformToMultiAndConcatenate(tick -> nextBatch());
+    }
+
+    public void start(Double rate, String profile) {
+        if (rate != null) {
+            this.rate = rate;
+        }
+        if (profile != null) {
+            this.profile = Profile.valueOf(profile.toUpperCase());
+        }
+        running = true;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Messages acknowledged by Kafka per second, averaged over at least the last second.
+     */
+    public synchronized double getAchievedRate() {
+        long now = System.nanoTime();
+        long window = now - windowStartNanos;
+        if (window >= TimeUnit.SECONDS.toNanos(1)) {
+            long count = (long) sent.count();
+            achievedRate = (count - windowStartCount) * 1e9 / window;
+            windowStartCount = count;
+            windowStartNanos = now;
+        }
+        return achievedRate;
+    }
+
+    public int getSensors() {
+        return keys.length;
+    }
+
+    double currentRate(long now) {
+        double base = rate;
+        long elapsed = now - startNanos;
+        return switch (profile) {
+            case CONSTANT -> base;
+            case SQUARE -> elapsed % burstPeriodNanos < burstLengthNanos ? base * burstFactor : base;
+            case SINE -> base * (1 + Math.sin(2 * Math.PI * (elapsed % burstPeriodNanos) / burstPeriodNanos));
+        };
+    }
+
+    private Multi<Message<SensorMeasurement>> nextBatch() {
+        long now = System.nanoTime();
+        long elapsed = Math.min(now - lastTickNanos, MAX_CATCH_UP_NANOS);
+        lastTickNanos = now;
+        if (!running) {
+            credit = 0;
+            return Multi.createFrom().empty();
+        }
+        credit += Math.min(currentRate(now), MAX_RATE) * elapsed / 1e9;
+        int count = (int) credit;
+        credit -= count;
+        if (count == 0) {
+            return Multi.createFrom().empty();
+        }
+        generated.increment(count);
+        return Multi.createFrom().range(0, count).onItem().transform(i -> message());
+    }
+
+    private Message<SensorMeasurement> message() {
+        long start = System.nanoTime();
+        SensorMeasurement sensorMeasurement = new SensorMeasurement(ThreadLocalRandom.current().nextDouble(), Instant.now());
+        OutgoingKafkaRecordMetadata<String> metadata = OutgoingKafkaRecordMetadata.<String>builder()
+                .withKey(keys[(int) (sequence++ % keys.length)])
+                .build();
+        return Message.of(sensorMeasurement, Metadata.of(metadata),
+                () -> {
+                    sent.increment();
+                    sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return CompletableFuture.completedFuture(null);
+                },
+                failure -> {
+                    failures.increment();
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+}
@@ -0,0 +1,129 @@
+package ch.puzzle.quarkustechlab.messaging.producer.control;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark mode: drives the load generator at the configured rate and, after a warm-up, logs the throughput in
+ * messages and bytes per second, the send latency percentiles and the batching figures of the Kafka producer. Run it
+ * with a tuning preset to compare settings, e.g. {@code ./mvnw quarkus:dev -Dquarkus.profile=dev,benchmark,data-throughput}.
+ */
+@ApplicationScoped
+public class ProducerBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerBenchmark.class);
+    private static final String CHANNEL = "data";
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LoadGenerator loadGenerator;
+    private final KafkaClientService kafkaClientService;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+
+    public ProducerBenchmark(LoadGenerator loadGenerator, KafkaClientService kafkaClientService, MeterRegistry registry,
+                             @ConfigProperty(name = "producer.benchmark.enabled", defaultValue = "false") boolean enabled,
+                             @ConfigProperty(name = "producer.benchmark.rate", defaultValue = "1000000") double rate,
+                             @ConfigProperty(name = "producer.benchmark.warmup", defaultValue = "10s") Duration warmup,
+                             @ConfigProperty(name = "producer.benchmark.duration", defaultValue = "30s") Duration duration) {
+        this.loadGenerator = loadGenerator;
+        this.kafkaClientService = kafkaClientService;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled) {
+            Thread thread = new Thread(this::run, "producer-benchmark");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        Map<String, ?> configuration = kafkaClientService.getProducer(CHANNEL).configuration();
+        logger.info("Benchmark of channel {} at {} msg/s: warm-up {}, measuring {}, batch.size={}, linger.ms={}, compression.type={}, acks={}, enable.idempotence={}, max.in.flight.requests.per.connection={}",
+                CHANNEL, rate, warmup, duration, configuration.get("batch.size"), configuration.get("linger.ms"),
+                configuration.get("compression.type"), configuration.get("acks"), configuration.get("enable.idempotence"),
+                configuration.get("max.in.flight.requests.per.connection"));
+        loadGenerator.start(rate, LoadGenerator.Profile.CONSTANT.name());
+        try {
+            Thread.sleep(warmup.toMillis());
+            Snapshot start = snapshot();
+            Thread.sleep(duration.toMillis());
+            Snapshot end = snapshot();
+            report(start, end);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loadGenerator.stop();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Timer latency = registry.get("producer_load_send_latency").timer();
+        double sent = registry.get("producer_load_messages").tag("result", "sent").counter().count();
+        return new Snapshot(System.nanoTime(), sent, producerMetric("outgoing-byte-total"), latency.takeSnapshot().histogramCounts());
+    }
+
+    private void report(Snapshot start, Snapshot end) {
+        double seconds = (end.nanos - start.nanos) / 1e9;
+        double messages = end.sent - start.sent;
+        if (messages == 0) {
+            logger.warn("Benchmark result: no message was acknowledged within {}", duration);
+            return;
+        }
+        StringBuilder percentiles = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            percentiles.append(String.format(" p%s=%.2fms", BigDecimal.valueOf(percentile * 100).stripTrailingZeros().toPlainString(),
+                    percentile(start.latency, end.latency, messages * percentile)));
+        }
+        logger.info("Benchmark result: {} msg/s, {} bytes/s, send latency{}, batch-size-avg={}, record-size-avg={}, compression-rate-avg={}",
+                String.format("%.0f", messages / seconds), String.format("%.0f", (end.bytes - start.bytes) / seconds), percentiles,
+                producerMetric("batch-size-avg"), producerMetric("record-size-avg"), producerMetric("compression-rate-avg"));
+    }
+
+    /**
+     * Upper bound of the histogram bucket containing the given rank, counted over the interval between the snapshots.
+     */
+    static double percentile(CountAtBucket[] start, CountAtBucket[] end, double rank) {
+        for (int i = 0; i < end.length; i++) {
+            if (end[i].count() - start[i].count() >= rank) {
+                return end[i].bucket(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private double producerMetric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : kafkaClientService.getProducer(CHANNEL).unwrap().metrics().entrySet()) {
+            if (metric.getKey().group().equals("producer-metrics") && metric.getKey().name().equals(name)) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private record Snapshot(long nanos, double sent, double bytes, CountAtBucket[] latency) {
+    }
+}
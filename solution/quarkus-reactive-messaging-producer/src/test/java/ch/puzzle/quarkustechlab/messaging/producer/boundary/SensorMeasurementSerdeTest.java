@@ -0,0 +1,74 @@
+package ch.puzzle.quarkustechlab.messaging.producer.boundary;
+
+import ch.puzzle.quarkustechlab.messaging.producer.entity.SensorMeasurement;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+public class SensorMeasurementSerdeTest {
+
+    private static final String TOPIC = "data";
+    private static final Instant TIME = Instant.parse("2024-05-01T12:34:56.123456Z");
+
+    @Test
+    @DisplayName("binary serde keeps value and time")
+    public void testBinaryRoundTrip() {
+        SensorMeasurementBinarySerde serde = new SensorMeasurementBinarySerde();
+        byte[] bytes = serde.serialize(TOPIC, new SensorMeasurement(42.5, TIME));
+        Assertions.assertEquals(SensorMeasurementBinarySerde.SIZE, bytes.length);
+        assertRoundTrip(serde, serde, new SensorMeasurement(42.5, TIME));
+    }
+
+    @Test
+    @DisplayName("binary serde keeps missing fields missing")
+    public void testBinaryMissingFields() {
+        SensorMeasurementBinarySerde serde = new SensorMeasurementBinarySerde();
+        assertRoundTrip(serde, serde, new SensorMeasurement(null, null));
+        Assertions.assertNull(serde.serialize(TOPIC, null));
+        Assertions.assertNull(serde.deserialize(TOPIC, null));
+    }
+
+    @Test
+    @DisplayName("binary serde rejects records of the wrong size")
+    public void testBinaryWrongSize() {
+        SensorMeasurementBinarySerde serde = new SensorMeasurementBinarySerde();
+        Assertions.assertThrows(SerializationException.class, () -> serde.deserialize(TOPIC, new byte[3]));
+    }
+
+    @Test
+    @DisplayName("avro serde keeps value and time")
+    public void testAvroRoundTrip() {
+        SensorMeasurementAvroSerde serde = new SensorMeasurementAvroSerde();
+        assertRoundTrip(serde, serde, new SensorMeasurement(42.5, TIME));
+    }
+
+    @Test
+    @DisplayName("avro serde keeps missing fields missing")
+    public void testAvroMissingFields() {
+        SensorMeasurementAvroSerde serde = new SensorMeasurementAvroSerde();
+        assertRoundTrip(serde, serde, new SensorMeasurement(null, null));
+        Assertions.assertNull(serde.serialize(TOPIC, null));
+        Assertions.assertNull(serde.deserialize(TOPIC, null));
+    }
+
+    @Test
+    @DisplayName("avro serde rejects truncated records")
+    public void testAvroTruncated() {
+        SensorMeasurementAvroSerde serde = new SensorMeasurementAvroSerde();
+        byte[] bytes = serde.serialize(TOPIC, new SensorMeasurement(42.5, TIME));
+        Assertions.assertThrows(SerializationException.class, () -> serde.deserialize(TOPIC, Arrays.copyOf(bytes, 3)));
+    }
+
+    private static void assertRoundTrip(Serializer<SensorMeasurement> serializer, Deserializer<SensorMeasurement> deserializer,
+                                        SensorMeasurement measurement) {
+        SensorMeasurement result = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, measurement));
+        Assertions.assertEquals(measurement.data, result.data);
+        Assertions.assertEquals(measurement.time, result.time);
+    }
+}
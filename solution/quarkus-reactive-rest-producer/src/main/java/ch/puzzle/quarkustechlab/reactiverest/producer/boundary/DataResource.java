@@ -1,6 +1,11 @@
 package ch.puzzle.quarkustechlab.reactiverest.producer.boundary;
 
+import ch.puzzle.quarkustechlab.reactiverest.producer.control.MeasurementFeed;
+import ch.puzzle.quarkustechlab.reactiverest.producer.control.MeasurementStatistics;
 import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorMeasurement;
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorStatistics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
@@ -8,21 +13,59 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 @Path("/data")
 public class DataResource {
 
+    static final String NDJSON = "application/x-ndjson";
+    static final int MAX_PAGE_SIZE = 1000;
 
     @Inject
     PgPool client;
 
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeasurementFeed feed;
+
+    @Inject
+    MeasurementStatistics statistics;
+
+    @ConfigProperty(name = "myapp.stream.fetch-size", defaultValue = "500")
+    int fetchSize;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Multi<SensorMeasurement> findAll() {
-        return SensorMeasurement.findAll(client);
+    public Multi<SensorMeasurement> findAll(@QueryParam("afterId") @DefaultValue("0") long afterId, @QueryParam("limit") Integer limit,
+                                            @QueryParam("from") String from, @QueryParam("to") String to) {
+        if (from != null || to != null) {
+            return SensorMeasurement.findRange(client, parseInstant(from, Instant.EPOCH), parseInstant(to, Instant.now()), fetchSize);
+        }
+        if (limit == null) {
+            return SensorMeasurement.stream(client, afterId, fetchSize);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return SensorMeasurement.findPage(client, afterId, limit);
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces({NDJSON, MediaType.SERVER_SENT_EVENTS})
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<SensorMeasurement> stream(@QueryParam("afterId") @DefaultValue("0") long afterId) {
+        return SensorMeasurement.stream(client, afterId, fetchSize);
     }
 
     @GET
@@ -39,8 +82,7 @@ public class DataResource {
     @Produces(MediaType.SERVER_SENT_EVENTS)
     @RestStreamElementType(MediaType.APPLICATION_JSON)
     public Multi<SensorMeasurement> latest() {
-        return Multi.createFrom().ticks().every(Duration.ofSeconds(5))
-                .onItem().transform(i -> SensorMeasurement.getLatest(client).await().indefinitely());
+        return feed.latest();
     }
 
     @GET
@@ -48,13 +90,107 @@ public class DataResource {
     @Produces(MediaType.SERVER_SENT_EVENTS)
     @RestStreamElementType(MediaType.APPLICATION_JSON)
     public Multi<SensorMeasurement> average() {
-        return Multi.createFrom().ticks().every(Duration.ofSeconds(5))
-                .onItem().transform(i -> SensorMeasurement.getAverage(client).await().indefinitely());
+        return feed.average();
+    }
+
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SensorStatistics stats(@QueryParam("window") String window, @QueryParam("type") @DefaultValue("sliding") String type) {
+        if (window == null || window.isBlank()) {
+            return statistics.total();
+        }
+        Duration duration = parseWindow(window);
+        if (duration == null || duration.isNegative() || duration.isZero() || duration.compareTo(MeasurementStatistics.MAX_WINDOW) > 0) {
+            throw new BadRequestException("window must be between 1s and " + MeasurementStatistics.MAX_WINDOW.toMinutes() + "m, e.g. 1m, 5m or 1h");
+        }
+        return switch (type) {
+            case "sliding" -> statistics.window(window, duration);
+            case "tumbling" -> statistics.tumblingWindow(window, duration);
+            default -> throw new BadRequestException("type must be sliding or tumbling");
+        };
     }
 
     @POST
     @Produces(MediaType.APPLICATION_JSON)
     public Uni<SensorMeasurement> create(SensorMeasurement sensorMeasurement) {
-        return sensorMeasurement.save(client);
+        validate(sensorMeasurement, "body");
+        return sensorMeasurement.save(client)
+                .onItem().invoke(saved -> {
+                    statistics.add(saved);
+                    feed.publish(saved);
+                });
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<List<Long>> createBatch(List<SensorMeasurement> sensorMeasurements, @QueryParam("bulk") boolean bulk) {
+        if (sensorMeasurements == null || sensorMeasurements.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        for (int i = 0; i < sensorMeasurements.size(); i++) {
+            validate(sensorMeasurements.get(i), "measurement " + i);
+        }
+        Uni<List<Long>> ids = bulk ? SensorMeasurement.bulkSave(client, sensorMeasurements) : SensorMeasurement.saveAll(client, sensorMeasurements);
+        return ids.onItem().invoke(generated -> {
+            for (int i = 0; i < generated.size(); i++) {
+                sensorMeasurements.get(i).id = generated.get(i);
+                statistics.add(sensorMeasurements.get(i));
+            }
+            sensorMeasurements.stream()
+                    .max(Comparator.comparing(sensorMeasurement -> sensorMeasurement.time))
+                    .ifPresent(feed::publish);
+        });
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<List<Long>> createBatchNdjson(String body, @QueryParam("bulk") boolean bulk) {
+        List<SensorMeasurement> sensorMeasurements = new ArrayList<>();
+        try {
+            for (String line : body.split("\\R")) {
+                if (!line.isBlank()) {
+                    sensorMeasurements.add(objectMapper.readValue(line, SensorMeasurement.class));
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid NDJSON line: " + e.getOriginalMessage());
+        }
+        return createBatch(sensorMeasurements, bulk);
+    }
+
+    private static void validate(SensorMeasurement sensorMeasurement, String name) {
+        if (sensorMeasurement == null || sensorMeasurement.data == null || sensorMeasurement.time == null) {
+            throw new BadRequestException(name + " needs data and time");
+        }
+    }
+
+    private static Instant parseInstant(String value, Instant defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid ISO-8601 instant: " + value);
+        }
+    }
+
+    private static Duration parseWindow(String window) {
+        try {
+            long amount = Long.parseLong(window.substring(0, window.length() - 1));
+            return switch (window.charAt(window.length() - 1)) {
+                case 's' -> Duration.ofSeconds(amount);
+                case 'm' -> Duration.ofMinutes(amount);
+                case 'h' -> Duration.ofHours(amount);
+                default -> null;
+            };
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
     }
 }
@@ -1,39 +1,187 @@
 package ch.puzzle.quarkustechlab.reactiverest.producer.control;
 
 import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlConnection;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @ApplicationScoped
 public class DBInit {
 
+    // 2: schema_version records the layout
+    static final int SCHEMA_VERSION = 2;
+
     private final PgPool client;
     private final boolean schemaCreate;
+    private final boolean partitioned;
+    private final String timeIndex;
+    private final PartitionMaintenance partitionMaintenance;
+    private final Duration attemptTimeout;
+    private final Duration initialBackoff;
+    private final int maxRetries;
+    private final Uni<Void> migration;
+    private volatile boolean ready;
+    private volatile int attempts;
+    private volatile Throwable lastFailure;
     private static final Logger log = LoggerFactory.getLogger(DBInit.class.getName());
 
-    public DBInit(PgPool client, @ConfigProperty(name = "myapp.schema.create", defaultValue = "true") boolean schemaCreate) {
+    public DBInit(PgPool client, PartitionMaintenance partitionMaintenance,
+                  @ConfigProperty(name = "myapp.schema.create", defaultValue = "true") boolean schemaCreate,
+                  @ConfigProperty(name = "myapp.schema.partitioned", defaultValue = "false") boolean partitioned,
+                  @ConfigProperty(name = "myapp.schema.time-index", defaultValue = "btree") String timeIndex,
+                  @ConfigProperty(name = "myapp.schema.attempt-timeout", defaultValue = "10s") Duration attemptTimeout,
+                  @ConfigProperty(name = "myapp.schema.initial-backoff", defaultValue = "500ms") Duration initialBackoff,
+                  @ConfigProperty(name = "myapp.schema.max-retries", defaultValue = "8") int maxRetries) {
         this.client = client;
+        this.partitionMaintenance = partitionMaintenance;
         this.schemaCreate = schemaCreate;
+        this.partitioned = partitioned;
+        this.timeIndex = "brin".equalsIgnoreCase(timeIndex) ? "brin" : "btree";
+        this.attemptTimeout = attemptTimeout;
+        this.initialBackoff = initialBackoff;
+        this.maxRetries = maxRetries;
+        this.migration = Uni.createFrom().deferred(this::initDb).memoize().indefinitely();
     }
 
     void onStart(@Observes StartupEvent ev) {
-        if (schemaCreate) {
-            log.info("Initializing Database");
-            initDb();
+        migration.subscribe().with(
+                ignored -> log.info("Database schema is ready"),
+                failure -> log.error("Database schema could not be initialized after {} attempts", attempts, failure));
+    }
+
+    /**
+     * Completes once the schema has been migrated (or was already current). Subscribers share a single migration run.
+     */
+    public Uni<Void> schemaReady() {
+        return migration;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    private Uni<Void> initDb() {
+        Uni<Void> schema = schemaCreate ? migrate() : Uni.createFrom().voidItem();
+        return schema
+                .chain(() -> partitioned ? partitionMaintenance.run().invoke(partitionMaintenance::schedule) : Uni.createFrom().voidItem())
+                .invoke(() -> ready = true);
+    }
+
+    /**
+     * Creates the schema or brings it to the configured layout. The layout is taken from the catalog, so databases
+     * from before it was recorded are covered as well: a different time index is rebuilt, a different partitioning
+     * would need the data to be moved and fails the migration right away.
+     * <p>
+     * Every attempt runs in one transaction with a server-side statement timeout, so a slow attempt is aborted by the
+     * database before the next one starts. The client-side timeout only covers a connection that stopped answering.
+     */
+    private Uni<Void> migrate() {
+        return Uni.createFrom().deferred(() -> {
+                    attempts++;
+                    return client.withTransaction(connection -> connection.query("SET LOCAL statement_timeout = " + attemptTimeout.toMillis()).execute()
+                                    .chain(() -> connection.query("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, applied_at TIMESTAMP WITH TIME ZONE DEFAULT NOW())").execute())
+                                    .chain(() -> connection.query("ALTER TABLE schema_version ADD COLUMN IF NOT EXISTS layout TEXT").execute())
+                                    .chain(() -> connection.query("SELECT coalesce(max(version), 0) AS version FROM schema_version").execute())
+                                    .map(rows -> rows.iterator().next().getInteger("version"))
+                                    .chain(version -> connection.query("SELECT c.relkind = 'p' AS partitioned, "
+                                                    + "(SELECT am.amname FROM pg_class i JOIN pg_am am ON am.oid = i.relam WHERE i.relname = 'sensormeasurements_time_idx') AS time_index "
+                                                    + "FROM pg_class c WHERE c.relname = 'sensormeasurements' AND c.relkind IN ('r', 'p')").execute()
+                                            .chain(rows -> migrate(connection, version, rows.iterator().hasNext() ? rows.iterator().next() : null))))
+                            .ifNoItem().after(attemptTimeout.multipliedBy(2)).fail();
+                })
+                .onFailure().invoke(failure -> {
+                    lastFailure = failure;
+                    log.warn("Schema initialization attempt {} failed: {}", attempts, failure.getMessage());
+                })
+                .onFailure(failure -> !(failure instanceof SchemaLayoutException)).retry()
+                .withBackOff(initialBackoff, initialBackoff.multipliedBy(32)).atMost(maxRetries);
+    }
+
+    private Uni<Void> migrate(SqlConnection connection, int version, Row table) {
+        String layout = layout(partitioned, timeIndex);
+        if (version == 0 || table == null) {
+            log.info("Initializing Database (schema version {} -> {}, {})", version, SCHEMA_VERSION, layout);
+            return connection.query(String.join(";\n", schemaStatements())).execute().replaceWithVoid();
+        }
+        boolean tablePartitioned = table.getBoolean("partitioned");
+        String tableTimeIndex = table.getString("time_index");
+        if (tablePartitioned != partitioned) {
+            return Uni.createFrom().failure(new SchemaLayoutException("Table sensormeasurements is "
+                    + (tablePartitioned ? "" : "not ") + "partitioned but myapp.schema.partitioned=" + partitioned
+                    + ", move the data to a table with the new layout or drop the table to start over"));
+        }
+        List<String> statements = new ArrayList<>();
+        if (!timeIndex.equals(tableTimeIndex)) {
+            log.info("Rebuilding the time index ({} -> {})", tableTimeIndex, timeIndex);
+            statements.add("DROP INDEX IF EXISTS sensormeasurements_time_idx");
+            statements.add(timeIndexStatement());
+        }
+        if (statements.isEmpty() && version >= SCHEMA_VERSION) {
+            log.info("Database schema is at version {} ({}), nothing to do", version, layout);
+            return Uni.createFrom().voidItem();
         }
+        statements.add(recordVersionStatement());
+        log.info("Migrating Database (schema version {} -> {}, {})", version, SCHEMA_VERSION, layout);
+        return connection.query(String.join(";\n", statements)).execute().replaceWithVoid();
     }
 
-    private void initDb() {
-        client.query("DROP TABLE IF EXISTS sensormeasurements").execute()
-                .flatMap(r -> client.query("CREATE TABLE sensormeasurements (id SERIAL PRIMARY KEY, data DOUBLE PRECISION, time TIMESTAMP WITH TIME ZONE DEFAULT NOW()::timestamp)").execute())
-                .flatMap(r -> client.query("INSERT INTO sensormeasurements (data) VALUES (0.1)").execute())
-                .flatMap(r -> client.query("INSERT INTO sensormeasurements (data) VALUES (0.2)").execute())
-                .flatMap(r -> client.query("INSERT INTO sensormeasurements (data) VALUES (0.3)").execute())
-                .flatMap(r -> client.query("INSERT INTO sensormeasurements (data) VALUES (0.4)").execute())
-                .await().indefinitely();
+    private List<String> schemaStatements() {
+        List<String> statements = new ArrayList<>();
+        statements.add("DROP TABLE IF EXISTS sensormeasurements CASCADE");
+        statements.add(partitioned
+                ? "CREATE TABLE sensormeasurements (id SERIAL, data DOUBLE PRECISION, time TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(), PRIMARY KEY (id, time)) PARTITION BY RANGE (time)"
+                : "CREATE TABLE sensormeasurements (id SERIAL PRIMARY KEY, data DOUBLE PRECISION, time TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW())");
+        statements.add(timeIndexStatement());
+        if (partitioned) {
+            statements.addAll(partitionMaintenance.partitionStatements());
+        }
+        statements.add("INSERT INTO sensormeasurements (data) VALUES (0.1), (0.2), (0.3), (0.4)");
+        statements.add(recordVersionStatement());
+        return statements;
+    }
+
+    private String timeIndexStatement() {
+        // BRIN is tiny and fits append-only time series, B-tree also serves "latest" lookups via ORDER BY time DESC
+        return "brin".equals(timeIndex)
+                ? "CREATE INDEX sensormeasurements_time_idx ON sensormeasurements USING BRIN (time)"
+                : "CREATE INDEX sensormeasurements_time_idx ON sensormeasurements (time)";
+    }
+
+    private String recordVersionStatement() {
+        return "INSERT INTO schema_version (version, layout) VALUES (" + SCHEMA_VERSION + ", '" + layout(partitioned, timeIndex) + "') "
+                + "ON CONFLICT (version) DO UPDATE SET layout = excluded.layout, applied_at = NOW()";
+    }
+
+    private static String layout(boolean partitioned, String timeIndex) {
+        return "partitioned=" + partitioned + ",time-index=" + timeIndex;
+    }
+
+    /**
+     * The existing table has a different layout than configured and can't be migrated automatically, retrying won't
+     * help.
+     */
+    static class SchemaLayoutException extends RuntimeException {
+
+        SchemaLayoutException(String message) {
+            super(message);
+        }
     }
 }
@@ -0,0 +1,77 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.control;
+
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorMeasurement;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.vertx.mutiny.pgclient.PgPool;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared hot streams for the SSE views. Every subscriber is attached to the same upstream, so the number of database
+ * queries does not depend on the number of connected clients. Slow subscribers only ever see the most recent value.
+ * The average is read from {@link MeasurementStatistics} and never touches the database.
+ */
+@ApplicationScoped
+public class MeasurementFeed {
+
+    private final PgPool client;
+    private final BroadcastProcessor<SensorMeasurement> latestProcessor = BroadcastProcessor.create();
+    private final Multi<SensorMeasurement> averageStream;
+    private volatile SensorMeasurement latest;
+
+    public MeasurementFeed(PgPool client, MeasurementStatistics statistics, @ConfigProperty(name = "myapp.feed.average-interval", defaultValue = "5s") Duration averageInterval) {
+        this.client = client;
+        this.averageStream = Multi.createFrom().ticks().every(averageInterval)
+                .onItem().transform(i -> new SensorMeasurement(0L, statistics.total().mean, Instant.now()))
+                .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+    }
+
+    /**
+     * Called from whichever event loop completed the insert, synchronized so the processor gets its signals one after
+     * the other and {@code latest} only moves forward.
+     */
+    public synchronized void publish(SensorMeasurement sensorMeasurement) {
+        SensorMeasurement current = latest;
+        if (sensorMeasurement == null || (current != null && sensorMeasurement.time.isBefore(current.time))) {
+            return;
+        }
+        latest = sensorMeasurement;
+        latestProcessor.onNext(sensorMeasurement);
+    }
+
+    /**
+     * The most recent measurement followed by every newer one. The processor is subscribed before the initial value is
+     * looked up, so nothing published in the meantime is lost; whatever arrives older than the last emitted item is
+     * dropped.
+     */
+    public Multi<SensorMeasurement> latest() {
+        return Multi.createFrom().deferred(() -> {
+            AtomicReference<SensorMeasurement> emitted = new AtomicReference<>();
+            SensorMeasurement current = latest;
+            Multi<SensorMeasurement> initial = current != null
+                    ? Multi.createFrom().item(current)
+                    : SensorMeasurement.getLatest(client).toMulti();
+            return Multi.createBy().merging().streams(latestProcessor, initial)
+                    .select().where(measurement -> isNewer(measurement, emitted));
+        }).onOverflow().dropPreviousItems();
+    }
+
+    private static boolean isNewer(SensorMeasurement measurement, AtomicReference<SensorMeasurement> emitted) {
+        SensorMeasurement previous = emitted.get();
+        if (previous != null && (measurement.time.isBefore(previous.time) || Objects.equals(measurement.id, previous.id))) {
+            return false;
+        }
+        emitted.set(measurement);
+        return true;
+    }
+
+    public Multi<SensorMeasurement> average() {
+        return averageStream.onOverflow().dropPreviousItems();
+    }
+}
@@ -0,0 +1,241 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.control;
+
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorMeasurement;
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorStatistics;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.pgclient.PgPool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * In-memory running aggregates over all stored measurements. The all-time values are kept with Welford's method,
+ * windowed values are merged from a ring of one-second buckets covering the last two hours. Sliding windows end now
+ * and reach back up to an hour, tumbling windows are aligned to multiples of their length since the epoch and the last
+ * completed one is returned, so the previous full hour still fits into the ring. Neither depends on the size of the
+ * table: the table is read once at startup and every saved measurement is added incrementally afterwards.
+ * <p>
+ * Measurements saved while the table is read are held back. Once the seed is in, the ones already contained in the
+ * snapshot it was read from are dropped and the others added, so nothing is counted twice.
+ */
+@ApplicationScoped
+public class MeasurementStatistics {
+
+    public static final Duration MAX_WINDOW = Duration.ofHours(1);
+    // twice the longest window, the last completed tumbling window may have started up to two windows ago
+    static final int BUCKETS = (int) MAX_WINDOW.toSeconds() * 2;
+    private static final Logger log = LoggerFactory.getLogger(MeasurementStatistics.class.getName());
+
+    private final PgPool client;
+    private final DBInit dbInit;
+    private final Aggregate total = new Aggregate();
+    private final Aggregate[] buckets = new Aggregate[BUCKETS];
+    private final long[] bucketSeconds = new long[BUCKETS];
+    // measurements added while seeding, null once seeded
+    private List<SensorMeasurement> pending = new ArrayList<>();
+
+    public MeasurementStatistics(PgPool client, DBInit dbInit) {
+        this.client = client;
+        this.dbInit = dbInit;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Aggregate();
+            bucketSeconds[i] = Long.MIN_VALUE;
+        }
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        dbInit.schemaReady()
+                .chain(() -> client.withTransaction(connection -> connection.query("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ").execute()
+                        .chain(() -> connection.query("SELECT count(*) AS count, avg(data) AS mean, min(data) AS min, max(data) AS max, var_pop(data) AS variance FROM sensormeasurements").execute())
+                        .invoke(rows -> rows.forEach(this::seedTotal))
+                        .chain(() -> connection.preparedQuery("SELECT floor(extract(epoch FROM time))::bigint AS second, count(*) AS count, avg(data) AS mean, min(data) AS min, max(data) AS max, var_pop(data) AS variance FROM sensormeasurements WHERE time > $1 GROUP BY 1")
+                                .execute(Tuple.of(Instant.now().minusSeconds(BUCKETS).atOffset(ZoneOffset.UTC))))
+                        .invoke(rows -> rows.forEach(this::seedBucket))
+                        .chain(() -> addPending(connection))))
+                .subscribe().with(ignored -> log.info("Seeded measurement statistics with {} measurements", total().count),
+                        failure -> {
+                            log.warn("Could not seed measurement statistics", failure);
+                            takePending().forEach(this::apply);
+                        });
+    }
+
+    /**
+     * Adds the measurements saved during seeding that the seed's snapshot doesn't contain yet.
+     */
+    private Uni<Void> addPending(SqlConnection connection) {
+        List<SensorMeasurement> measurements = takePending();
+        Long[] ids = measurements.stream().map(measurement -> measurement.id).filter(Objects::nonNull).toArray(Long[]::new);
+        return connection.preparedQuery("SELECT id FROM sensormeasurements WHERE id = ANY($1)").execute(Tuple.of(ids))
+                .invoke(rows -> {
+                    Set<Long> seeded = new HashSet<>();
+                    rows.forEach(row -> seeded.add(row.getLong("id")));
+                    measurements.stream()
+                            .filter(measurement -> !seeded.contains(measurement.id))
+                            .forEach(this::apply);
+                })
+                .replaceWithVoid();
+    }
+
+    private synchronized List<SensorMeasurement> takePending() {
+        List<SensorMeasurement> measurements = pending == null ? List.of() : pending;
+        pending = null;
+        return measurements;
+    }
+
+    public synchronized void add(SensorMeasurement sensorMeasurement) {
+        if (sensorMeasurement == null || sensorMeasurement.data == null) {
+            return;
+        }
+        if (pending != null) {
+            pending.add(sensorMeasurement);
+            return;
+        }
+        apply(sensorMeasurement);
+    }
+
+    private void apply(SensorMeasurement sensorMeasurement) {
+        apply(sensorMeasurement, Instant.now().getEpochSecond());
+    }
+
+    synchronized void apply(SensorMeasurement sensorMeasurement, long now) {
+        total.add(sensorMeasurement.data);
+        long second = sensorMeasurement.time.getEpochSecond();
+        // the time is supplied by the client, one in the future would take over and reset a bucket in use
+        if (now - BUCKETS < second && second <= now) {
+            bucket(second).add(sensorMeasurement.data);
+        }
+    }
+
+    public synchronized SensorStatistics total() {
+        return total.toStatistics("all");
+    }
+
+    public SensorStatistics window(String name, Duration window) {
+        return window(name, window, Instant.now().getEpochSecond());
+    }
+
+    synchronized SensorStatistics window(String name, Duration window, long now) {
+        long from = now - Math.min(window.toSeconds(), MAX_WINDOW.toSeconds()) + 1;
+        return merge(name, from, now + 1);
+    }
+
+    /**
+     * The last completed window aligned to a multiple of its length, e.g. the previous full minute for 1m.
+     */
+    public SensorStatistics tumblingWindow(String name, Duration window) {
+        return tumblingWindow(name, window, Instant.now().getEpochSecond());
+    }
+
+    synchronized SensorStatistics tumblingWindow(String name, Duration window, long now) {
+        long length = Math.min(window.toSeconds(), MAX_WINDOW.toSeconds());
+        long to = Math.floorDiv(now, length) * length;
+        return merge(name, to - length, to);
+    }
+
+    private SensorStatistics merge(String name, long from, long to) {
+        Aggregate result = new Aggregate();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (bucketSeconds[i] >= from && bucketSeconds[i] < to) {
+                result.merge(buckets[i]);
+            }
+        }
+        SensorStatistics statistics = result.toStatistics(name);
+        statistics.from = Instant.ofEpochSecond(from);
+        statistics.to = Instant.ofEpochSecond(to);
+        return statistics;
+    }
+
+    private synchronized void seedTotal(Row row) {
+        seed(total, row);
+    }
+
+    private synchronized void seedBucket(Row row) {
+        seed(bucket(row.getLong("second")), row);
+    }
+
+    private static void seed(Aggregate aggregate, Row row) {
+        long count = row.getLong("count");
+        if (count > 0) {
+            Aggregate seed = new Aggregate();
+            seed.count = count;
+            seed.mean = row.getDouble("mean");
+            seed.min = row.getDouble("min");
+            seed.max = row.getDouble("max");
+            seed.m2 = row.getDouble("variance") * count;
+            aggregate.merge(seed);
+        }
+    }
+
+    private Aggregate bucket(long second) {
+        int index = (int) Math.floorMod(second, (long) BUCKETS);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            buckets[index].reset();
+        }
+        return buckets[index];
+    }
+
+    static final class Aggregate {
+        long count;
+        double mean;
+        double m2;
+        double min;
+        double max;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            min = count == 1 ? value : Math.min(min, value);
+            max = count == 1 ? value : Math.max(max, value);
+        }
+
+        void merge(Aggregate other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (count == 0) {
+                count = other.count;
+                mean = other.mean;
+                m2 = other.m2;
+                min = other.min;
+                max = other.max;
+                return;
+            }
+            long combined = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / combined;
+            m2 += other.m2 + delta * delta * count * other.count / combined;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            count = combined;
+        }
+
+        void reset() {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            min = 0;
+            max = 0;
+        }
+
+        SensorStatistics toStatistics(String window) {
+            return new SensorStatistics(window, count, mean, min, max, count > 0 ? m2 / count : 0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.control;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.pgclient.PgPool;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the daily partitions of a partitioned {@code sensormeasurements} table in shape: partitions for the coming
+ * days are created ahead of time and partitions older than the retention period are dropped. Measurements outside of
+ * the daily partitions, e.g. with a time supplied by a client or written while maintenance isn't running, end up in
+ * the default partition, which is never dropped. A day whose rows already are in the default partition can't get a
+ * partition of its own, they stay in the default partition.
+ */
+@ApplicationScoped
+public class PartitionMaintenance {
+
+    static final String PARTITION_PREFIX = "sensormeasurements_";
+    static final String DEFAULT_PARTITION = PARTITION_PREFIX + "default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenance.class.getName());
+
+    private final PgPool client;
+    private final Vertx vertx;
+    private final int daysAhead;
+    private final Duration retention;
+    private final Duration interval;
+    private Long timerId;
+
+    public PartitionMaintenance(PgPool client, Vertx vertx,
+                                @ConfigProperty(name = "myapp.schema.partition.days-ahead", defaultValue = "3") int daysAhead,
+                                @ConfigProperty(name = "myapp.schema.partition.retention", defaultValue = "30d") Duration retention,
+                                @ConfigProperty(name = "myapp.schema.partition.interval", defaultValue = "1h") Duration interval) {
+        this.client = client;
+        this.vertx = vertx;
+        this.daysAhead = daysAhead;
+        this.retention = retention;
+        this.interval = interval;
+    }
+
+    public synchronized void schedule() {
+        if (timerId == null) {
+            timerId = vertx.setPeriodic(interval.toMillis(), id -> run().subscribe().with(
+                    ignored -> { },
+                    failure -> log.warn("Partition maintenance failed", failure)));
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        synchronized (this) {
+            if (timerId != null) {
+                vertx.cancelTimer(timerId);
+            }
+        }
+    }
+
+    public Uni<Void> run() {
+        return createPartitions().chain(this::dropExpiredPartitions);
+    }
+
+    List<String> partitionStatements() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<String> statements = new ArrayList<>();
+        statements.add("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF sensormeasurements DEFAULT");
+        for (int i = 0; i <= daysAhead; i++) {
+            LocalDate day = today.plusDays(i);
+            statements.add("CREATE TABLE IF NOT EXISTS " + partitionName(day) + " PARTITION OF sensormeasurements "
+                    + "FOR VALUES FROM ('" + day + "T00:00:00Z') TO ('" + day.plusDays(1) + "T00:00:00Z')");
+        }
+        return statements;
+    }
+
+    Uni<Void> createPartitions() {
+        return Multi.createFrom().iterable(partitionStatements())
+                .onItem().transformToUniAndConcatenate(statement -> client.query(statement).execute().replaceWithVoid()
+                        // e.g. the default partition already holds rows of that day, the other days are still created
+                        .onFailure().invoke(failure -> log.warn("Could not create partition: {}", failure.getMessage()))
+                        .onFailure().recoverWithNull())
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    Uni<Void> dropExpiredPartitions() {
+        if (retention.isZero() || retention.isNegative()) {
+            return Uni.createFrom().voidItem();
+        }
+        String oldestKept = partitionName(LocalDate.now(ZoneOffset.UTC).minusDays(retention.toDays()));
+        return client.query("SELECT child.relname AS name FROM pg_inherits "
+                        + "JOIN pg_class parent ON pg_inherits.inhparent = parent.oid "
+                        + "JOIN pg_class child ON pg_inherits.inhrelid = child.oid "
+                        + "WHERE parent.relname = 'sensormeasurements'").execute()
+                .onItem().transformToMulti(rows -> Multi.createFrom().iterable(rows))
+                .onItem().transform(row -> row.getString("name"))
+                .select().where(name -> name.startsWith(PARTITION_PREFIX) && !name.equals(DEFAULT_PARTITION) && name.compareTo(oldestKept) < 0)
+                .onItem().transformToUniAndConcatenate(name -> client.query("DROP TABLE IF EXISTS " + name).execute()
+                        .invoke(() -> log.info("Dropped expired partition {}", name)))
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+}
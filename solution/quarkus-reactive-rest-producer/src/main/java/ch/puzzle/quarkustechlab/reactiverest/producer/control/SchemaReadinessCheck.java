@@ -0,0 +1,29 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.control;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+@Readiness
+@ApplicationScoped
+public class SchemaReadinessCheck implements HealthCheck {
+
+    @Inject
+    DBInit dbInit;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder responseBuilder = HealthCheckResponse.named("Database schema check")
+                .status(dbInit.isReady())
+                .withData("attempts", dbInit.getAttempts());
+
+        if (!dbInit.isReady() && dbInit.getLastFailure() != null) {
+            responseBuilder.withData("lastFailure", String.valueOf(dbInit.getLastFailure().getMessage()));
+        }
+
+        return responseBuilder.build();
+    }
+}
@@ -8,7 +8,10 @@ import io.vertx.mutiny.sqlclient.RowSet;
 import io.vertx.mutiny.sqlclient.Tuple;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SensorMeasurement {
     public Long id;
@@ -20,18 +23,42 @@ public class SensorMeasurement {
         this.time = Instant.now();
     }
 
+    public SensorMeasurement(Long id, Double data, Instant time) {
+        this.id = id;
+        this.data = data;
+        this.time = time;
+    }
+
     public SensorMeasurement(Row row) {
         this.id = row.getLong("id");
         this.data = row.getDouble("data");
         this.time = Instant.from(row.getOffsetDateTime("time"));
     }
 
-    public static Multi<SensorMeasurement> findAll(PgPool client) {
-        return client.query("SELECT id, data, time from sensormeasurements").execute()
+    public static Multi<SensorMeasurement> findPage(PgPool client, long afterId, int limit) {
+        return client.preparedQuery("SELECT id, data, time from sensormeasurements where id > $1 order by id limit $2").execute(Tuple.of(afterId, limit))
                 .onItem().transformToMulti(set -> Multi.createFrom().iterable(set))
                 .onItem().transform(SensorMeasurement::new);
     }
 
+    public static Multi<SensorMeasurement> stream(PgPool client, long afterId, int fetchSize) {
+        return client.getConnection().onItem().transformToMulti(connection -> connection.begin()
+                .onItem().transformToMulti(transaction -> connection.prepare("SELECT id, data, time from sensormeasurements where id > $1 order by id")
+                        .onItem().transformToMulti(statement -> statement.createStream(fetchSize, Tuple.of(afterId)).toMulti())
+                        .onTermination().call(transaction::rollback))
+                .onTermination().call(connection::close))
+                .onItem().transform(SensorMeasurement::new);
+    }
+
+    public static Multi<SensorMeasurement> findRange(PgPool client, Instant from, Instant to, int fetchSize) {
+        return client.getConnection().onItem().transformToMulti(connection -> connection.begin()
+                .onItem().transformToMulti(transaction -> connection.prepare("SELECT id, data, time from sensormeasurements where time >= $1 and time < $2 order by time")
+                        .onItem().transformToMulti(statement -> statement.createStream(fetchSize, Tuple.of(from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC))).toMulti())
+                        .onTermination().call(transaction::rollback))
+                .onTermination().call(connection::close))
+                .onItem().transform(SensorMeasurement::new);
+    }
+
     public static Uni<SensorMeasurement> findById(PgPool client, Long id) {
         return client.preparedQuery("SELECT id, data, time from sensormeasurements where id = $1").execute(Tuple.of(id))
                 .onItem().transform(RowSet::iterator)
@@ -45,14 +72,52 @@ public class SensorMeasurement {
                 .onItem().transform(iterator -> iterator.hasNext() ? new SensorMeasurement(iterator.next()) : null);
     }
 
-    public static Uni<SensorMeasurement> getLatest(PgPool client) {
-        return client.query("SELECT id, data, time from sensormeasurements where time = (SELECT max(time) from sensormeasurements) limit 1").execute()
-                .onItem().transform(RowSet::iterator)
-                .onItem().transform(iterator -> iterator.hasNext() ? new SensorMeasurement(iterator.next()) : null);
+    /**
+     * Inserts the measurements as one batch of single-row statements, the result of each is returned in the order of
+     * the batch.
+     */
+    public static Uni<List<Long>> saveAll(PgPool client, List<SensorMeasurement> measurements) {
+        List<Tuple> tuples = new ArrayList<>(measurements.size());
+        for (SensorMeasurement measurement : measurements) {
+            tuples.add(Tuple.of(measurement.data, measurement.time.atOffset(ZoneOffset.UTC)));
+        }
+        return client.preparedQuery("INSERT INTO sensormeasurements (data, time) VALUES ($1, $2) RETURNING id")
+                .executeBatch(tuples)
+                .onItem().transform(SensorMeasurement::collectIds);
+    }
+
+    /**
+     * Inserts all measurements with one statement. PostgreSQL doesn't guarantee the order of the rows an INSERT
+     * returns, so the ids are drawn from the sequence together with the position of each measurement and returned
+     * in that order.
+     */
+    public static Uni<List<Long>> bulkSave(PgPool client, List<SensorMeasurement> measurements) {
+        Double[] data = new Double[measurements.size()];
+        OffsetDateTime[] times = new OffsetDateTime[measurements.size()];
+        for (int i = 0; i < measurements.size(); i++) {
+            data[i] = measurements.get(i).data;
+            times[i] = measurements.get(i).time.atOffset(ZoneOffset.UTC);
+        }
+        return client.preparedQuery("WITH input AS (SELECT nextval(pg_get_serial_sequence('sensormeasurements', 'id')) AS id, data, time, n "
+                        + "FROM unnest($1::float8[], $2::timestamptz[]) WITH ORDINALITY AS t(data, time, n)), "
+                        + "inserted AS (INSERT INTO sensormeasurements (id, data, time) SELECT id, data, time FROM input) "
+                        + "SELECT id FROM input ORDER BY n")
+                .execute(Tuple.of(data, times))
+                .onItem().transform(SensorMeasurement::collectIds);
+    }
+
+    private static List<Long> collectIds(RowSet<Row> rowSet) {
+        List<Long> ids = new ArrayList<>();
+        for (RowSet<Row> set = rowSet; set != null; set = set.next()) {
+            for (Row row : set) {
+                ids.add(row.getLong("id"));
+            }
+        }
+        return ids;
     }
 
-    public static Uni<SensorMeasurement> getAverage(PgPool client) {
-        return client.query("SELECT 0 as id, avg(data) as data, NOW() as time from sensormeasurements").execute()
+    public static Uni<SensorMeasurement> getLatest(PgPool client) {
+        return client.query("SELECT id, data, time from sensormeasurements order by time desc limit 1").execute()
                 .onItem().transform(RowSet::iterator)
                 .onItem().transform(iterator -> iterator.hasNext() ? new SensorMeasurement(iterator.next()) : null);
     }
@@ -0,0 +1,31 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.entity;
+
+import java.time.Instant;
+
+public class SensorStatistics {
+    public String window;
+    public long count;
+    public Double mean;
+    public Double min;
+    public Double max;
+    public Double variance;
+    public Instant time;
+    // covered interval of windowed statistics, to is exclusive
+    public Instant from;
+    public Instant to;
+
+    public SensorStatistics() {
+    }
+
+    public SensorStatistics(String window, long count, double mean, double min, double max, double variance) {
+        this.window = window;
+        this.count = count;
+        if (count > 0) {
+            this.mean = mean;
+            this.min = min;
+            this.max = max;
+            this.variance = variance;
+        }
+        this.time = Instant.now();
+    }
+}
@@ -0,0 +1,106 @@
+package ch.puzzle.quarkustechlab.reactiverest.producer.control;
+
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorMeasurement;
+import ch.puzzle.quarkustechlab.reactiverest.producer.entity.SensorStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class MeasurementStatisticsTest {
+
+    private static final long NOW = 1_700_000_000L;
+
+    @Test
+    @DisplayName("running aggregates match the directly computed values")
+    public void testWelford() {
+        MeasurementStatistics.Aggregate aggregate = new MeasurementStatistics.Aggregate();
+        double[] values = {4, 7, 13, 16};
+        for (double value : values) {
+            aggregate.add(value);
+        }
+        SensorStatistics statistics = aggregate.toStatistics("all");
+        Assertions.assertEquals(4, statistics.count);
+        Assertions.assertEquals(10.0, statistics.mean, 1e-9);
+        Assertions.assertEquals(4.0, statistics.min);
+        Assertions.assertEquals(16.0, statistics.max);
+        Assertions.assertEquals(22.5, statistics.variance, 1e-9);
+    }
+
+    @Test
+    @DisplayName("merged aggregates equal one aggregate over all values")
+    public void testMerge() {
+        MeasurementStatistics.Aggregate all = new MeasurementStatistics.Aggregate();
+        MeasurementStatistics.Aggregate first = new MeasurementStatistics.Aggregate();
+        MeasurementStatistics.Aggregate second = new MeasurementStatistics.Aggregate();
+        for (int i = 0; i < 100; i++) {
+            double value = Math.sin(i) * 100;
+            all.add(value);
+            (i < 30 ? first : second).add(value);
+        }
+        first.merge(second);
+        first.merge(new MeasurementStatistics.Aggregate());
+        Assertions.assertEquals(all.count, first.count);
+        Assertions.assertEquals(all.mean, first.mean, 1e-9);
+        Assertions.assertEquals(all.m2, first.m2, 1e-6);
+        Assertions.assertEquals(all.min, first.min);
+        Assertions.assertEquals(all.max, first.max);
+    }
+
+    @Test
+    @DisplayName("windows only contain the measurements of their seconds")
+    public void testWindow() {
+        MeasurementStatistics statistics = new MeasurementStatistics(null, null);
+        statistics.apply(measurement(1, NOW), NOW);
+        statistics.apply(measurement(2, NOW - 30), NOW);
+        statistics.apply(measurement(3, NOW - 120), NOW);
+        statistics.apply(measurement(4, NOW - 7200), NOW);
+
+        Assertions.assertEquals(2, statistics.window("1m", Duration.ofMinutes(1), NOW).count);
+        Assertions.assertEquals(3, statistics.window("5m", Duration.ofMinutes(5), NOW).count);
+        Assertions.assertEquals(1, statistics.window("1m", Duration.ofMinutes(1), NOW + 45).count);
+        Assertions.assertEquals(4, statistics.total().count);
+    }
+
+    @Test
+    @DisplayName("tumbling windows cover the last completed aligned interval")
+    public void testTumblingWindow() {
+        MeasurementStatistics statistics = new MeasurementStatistics(null, null);
+        long minute = NOW - Math.floorMod(NOW, 60);
+        long hour = NOW - Math.floorMod(NOW, 3600);
+        statistics.apply(measurement(1, minute), NOW);
+        statistics.apply(measurement(2, minute - 1), NOW);
+        statistics.apply(measurement(3, minute - 60), NOW);
+        statistics.apply(measurement(4, minute - 61), NOW);
+        statistics.apply(measurement(5, hour - 3600), NOW);
+
+        SensorStatistics previousMinute = statistics.tumblingWindow("1m", Duration.ofMinutes(1), NOW);
+        Assertions.assertEquals(2, previousMinute.count);
+        Assertions.assertEquals(2.5, previousMinute.mean);
+        Assertions.assertEquals(Instant.ofEpochSecond(minute - 60), previousMinute.from);
+        Assertions.assertEquals(Instant.ofEpochSecond(minute), previousMinute.to);
+
+        SensorStatistics previousHour = statistics.tumblingWindow("1h", Duration.ofHours(1), NOW);
+        Assertions.assertEquals(Instant.ofEpochSecond(hour - 3600), previousHour.from);
+        Assertions.assertEquals(5.0, previousHour.min);
+    }
+
+    @Test
+    @DisplayName("measurements from the future don't reset the buckets of the last hour")
+    public void testFutureMeasurement() {
+        MeasurementStatistics statistics = new MeasurementStatistics(null, null);
+        statistics.apply(measurement(1, NOW - 10), NOW);
+        // maps onto the same bucket as NOW - 10
+        statistics.apply(measurement(2, NOW - 10 + MeasurementStatistics.BUCKETS), NOW);
+
+        SensorStatistics window = statistics.window("1m", Duration.ofMinutes(1), NOW);
+        Assertions.assertEquals(1, window.count);
+        Assertions.assertEquals(1.0, window.mean);
+    }
+
+    private static SensorMeasurement measurement(double data, long second) {
+        return new SensorMeasurement(null, data, Instant.ofEpochSecond(second));
+    }
+}
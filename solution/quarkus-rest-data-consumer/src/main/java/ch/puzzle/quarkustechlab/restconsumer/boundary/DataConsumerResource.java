@@ -1,16 +1,23 @@
 package ch.puzzle.quarkustechlab.restconsumer.boundary;
 
+import ch.puzzle.quarkustechlab.restconsumer.control.AdaptiveProducerClient;
 import ch.puzzle.quarkustechlab.restconsumer.control.HealthService;
+import ch.puzzle.quarkustechlab.restconsumer.control.MeasurementCache;
+import ch.puzzle.quarkustechlab.restconsumer.control.ProducerEndpoints;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
 
+import java.util.function.Supplier;
+
 @Singleton
 @Path("/data")
 public class DataConsumerResource {
@@ -21,11 +28,42 @@ public class DataConsumerResource {
     @Inject
     HealthService healthService;
 
+    @Inject
+    MeasurementCache measurementCache;
+
+    @Inject
+    ProducerEndpoints producerEndpoints;
+
+    @Inject
+    AdaptiveProducerClient adaptiveProducerClient;
+
+    @ConfigProperty(name = "consumer.load-balancing.enabled", defaultValue = "false")
+    boolean loadBalancing;
+
+    @ConfigProperty(name = "consumer.adaptive-timeout.enabled", defaultValue = "true")
+    boolean adaptiveTimeout;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public SensorMeasurement getData() {
-        SensorMeasurement measurement = dataProducerService.getSensorMeasurement();
+        Supplier<SensorMeasurement> upstream;
+        if (loadBalancing) {
+            upstream = producerEndpoints::getSensorMeasurement;
+        } else if (adaptiveTimeout) {
+            upstream = adaptiveProducerClient::getSensorMeasurement;
+        } else {
+            upstream = dataProducerService::getSensorMeasurement;
+        }
+        SensorMeasurement measurement = measurementCache.get(upstream);
         healthService.registerMessageFetch();
         return measurement;
     }
+
+    @GET
+    @Path("/virtual")
+    @RunOnVirtualThread
+    @Produces(MediaType.APPLICATION_JSON)
+    public SensorMeasurement getDataOnVirtualThread() {
+        return getData();
+    }
 }
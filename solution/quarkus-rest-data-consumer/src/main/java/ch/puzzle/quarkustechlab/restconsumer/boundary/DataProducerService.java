@@ -9,6 +9,8 @@ import org.eclipse.microprofile.faulttolerance.Fallback;
 import org.eclipse.microprofile.faulttolerance.Timeout;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
+import java.util.concurrent.CompletionStage;
+
 @Path("/data")
 @RegisterRestClient(configKey = "data-producer-api")
 public interface DataProducerService {
@@ -19,6 +21,10 @@ public interface DataProducerService {
     @Fallback(fallbackMethod = "getDefaultMeasurement")
     SensorMeasurement getSensorMeasurement();
 
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    CompletionStage<SensorMeasurement> getSensorMeasurementAsync();
+
     default SensorMeasurement getDefaultMeasurement() {
         return new SensorMeasurement();
     }
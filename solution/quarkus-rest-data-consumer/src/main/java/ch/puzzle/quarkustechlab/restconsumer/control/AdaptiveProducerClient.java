@@ -0,0 +1,141 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.boundary.DataProducerService;
+import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the producer with a timeout derived from the observed latency (p95 times a factor) instead of a fixed one.
+ * Optionally a second, hedged request is sent once the first one is slower than p90; whichever answers first wins.
+ * Hedges are limited by a budget relative to the number of primary requests, so the producer load only grows by that
+ * share. When no answer arrives in time, the empty default measurement is returned like the fault tolerance fallback.
+ * Requests still running once the result is decided are cancelled, so the response of a losing hedge or a timed out
+ * request is no longer waited for and decoded.
+ */
+@ApplicationScoped
+public class AdaptiveProducerClient {
+
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_HEDGE_TOKENS = 10;
+    private static final SensorMeasurement TIMED_OUT = new SensorMeasurement();
+
+    private final DataProducerService dataProducerService;
+    final LatencyTracker latencies = new LatencyTracker(1000, TimeUnit.SECONDS.toNanos(1));
+    private final double timeoutFactor;
+    private final long initialTimeoutNanos;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final boolean hedging;
+    private final double hedgingBudget;
+    private final Counter primaryWins;
+    private final Counter hedgeWins;
+    private final Counter hedgesSent;
+    private final Counter fallbacks;
+    private double hedgeTokens = MAX_HEDGE_TOKENS;
+
+    public AdaptiveProducerClient(@RestClient DataProducerService dataProducerService, MeterRegistry registry,
+                                  @ConfigProperty(name = "consumer.adaptive-timeout.factor", defaultValue = "1.5") double timeoutFactor,
+                                  @ConfigProperty(name = "consumer.adaptive-timeout.initial", defaultValue = "500ms") Duration initialTimeout,
+                                  @ConfigProperty(name = "consumer.adaptive-timeout.min", defaultValue = "100ms") Duration minTimeout,
+                                  @ConfigProperty(name = "consumer.adaptive-timeout.max", defaultValue = "2s") Duration maxTimeout,
+                                  @ConfigProperty(name = "consumer.hedging.enabled", defaultValue = "false") boolean hedging,
+                                  @ConfigProperty(name = "consumer.hedging.budget", defaultValue = "0.1") double hedgingBudget) {
+        this.dataProducerService = dataProducerService;
+        this.timeoutFactor = timeoutFactor;
+        this.initialTimeoutNanos = initialTimeout.toNanos();
+        this.minTimeoutNanos = minTimeout.toNanos();
+        this.maxTimeoutNanos = maxTimeout.toNanos();
+        this.hedging = hedging;
+        this.hedgingBudget = hedgingBudget;
+        this.primaryWins = registry.counter("producer_requests", "outcome", "primary");
+        this.hedgeWins = registry.counter("producer_requests", "outcome", "hedge");
+        this.fallbacks = registry.counter("producer_requests", "outcome", "fallback");
+        this.hedgesSent = registry.counter("producer_hedges_sent");
+        registry.gauge("producer_timeout_seconds", this, client -> client.currentTimeoutNanos() / 1e9);
+    }
+
+    public SensorMeasurement getSensorMeasurement() {
+        CompletableFuture<SensorMeasurement> result = new CompletableFuture<>();
+        List<CompletableFuture<SensorMeasurement>> requests = new CopyOnWriteArrayList<>();
+        requests.add(call(result, primaryWins));
+
+        if (hedging && latencies.count() >= MIN_SAMPLES) {
+            CompletableFuture.delayedExecutor(latencies.percentile(0.90), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!result.isDone() && acquireHedgeToken()) {
+                    hedgesSent.increment();
+                    CompletableFuture<SensorMeasurement> hedge = call(result, hedgeWins);
+                    requests.add(hedge);
+                    // the result may have been decided while the hedge was sent
+                    if (result.isDone()) {
+                        hedge.cancel(false);
+                    }
+                }
+            });
+        }
+
+        long timeoutNanos = currentTimeoutNanos();
+        SensorMeasurement measurement = result
+                .completeOnTimeout(TIMED_OUT, timeoutNanos, TimeUnit.NANOSECONDS)
+                .join();
+        requests.forEach(request -> request.cancel(false));
+        if (measurement == TIMED_OUT) {
+            // the cancelled request took at least the timeout, without it the window would only see faster requests
+            latencies.record(timeoutNanos);
+        }
+        if (measurement == null || measurement == TIMED_OUT) {
+            fallbacks.increment();
+            return new SensorMeasurement();
+        }
+        return measurement;
+    }
+
+    long currentTimeoutNanos() {
+        if (latencies.count() < MIN_SAMPLES) {
+            return initialTimeoutNanos;
+        }
+        long timeout = (long) (latencies.percentile(0.95) * timeoutFactor);
+        return Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, timeout));
+    }
+
+    private CompletableFuture<SensorMeasurement> call(CompletableFuture<SensorMeasurement> result, Counter wins) {
+        long start = System.nanoTime();
+        if (wins == primaryWins) {
+            earnHedgeToken();
+        }
+        CompletableFuture<SensorMeasurement> request = dataProducerService.getSensorMeasurementAsync().toCompletableFuture();
+        request.whenComplete((measurement, failure) -> {
+            if (failure == null) {
+                latencies.record(System.nanoTime() - start);
+                if (result.complete(measurement)) {
+                    wins.increment();
+                }
+            } else if (wins == primaryWins) {
+                // hedges only cut tail latency, a failing producer falls back right away
+                result.complete(null);
+            }
+        });
+        return request;
+    }
+
+    synchronized void earnHedgeToken() {
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + hedgingBudget);
+    }
+
+    synchronized boolean acquireHedgeToken() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens--;
+        return true;
+    }
+}
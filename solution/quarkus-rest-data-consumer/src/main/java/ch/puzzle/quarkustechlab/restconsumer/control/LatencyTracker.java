@@ -0,0 +1,46 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import java.util.Arrays;
+
+/**
+ * Rolling latency window over the last {@code size} samples. Percentiles are computed from a sorted copy that is
+ * refreshed at most once per {@code refreshIntervalNanos}, so reading them on every request stays cheap.
+ */
+class LatencyTracker {
+
+    private final long[] samples;
+    private final long refreshIntervalNanos;
+    private int next;
+    private int count;
+    private long[] sorted = new long[0];
+    private long sortedAt;
+
+    LatencyTracker(int size, long refreshIntervalNanos) {
+        this.samples = new long[size];
+        this.refreshIntervalNanos = refreshIntervalNanos;
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long percentile(double percentile) {
+        long now = System.nanoTime();
+        if (sorted.length != count || now - sortedAt > refreshIntervalNanos) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sortedAt = now;
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
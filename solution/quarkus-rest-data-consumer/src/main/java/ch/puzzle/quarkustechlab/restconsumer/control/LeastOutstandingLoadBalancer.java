@@ -0,0 +1,21 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LeastOutstandingLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ProducerEndpoint select(List<ProducerEndpoint> endpoints) {
+        // start at a random position so ties do not always go to the first endpoint
+        int offset = ThreadLocalRandom.current().nextInt(endpoints.size());
+        ProducerEndpoint selected = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            ProducerEndpoint endpoint = endpoints.get((offset + i) % endpoints.size());
+            if (selected == null || endpoint.getInFlight() < selected.getInFlight()) {
+                selected = endpoint;
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,20 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import java.util.List;
+
+/**
+ * Strategy choosing the producer endpoint for the next call. Implementations only ever receive a non-empty list.
+ */
+public interface LoadBalancer {
+
+    ProducerEndpoint select(List<ProducerEndpoint> endpoints);
+
+    static LoadBalancer of(String type) {
+        return switch (type) {
+            case "round-robin" -> new RoundRobinLoadBalancer();
+            case "least-outstanding" -> new LeastOutstandingLoadBalancer();
+            case "power-of-two-choices" -> new PowerOfTwoChoicesLoadBalancer();
+            default -> throw new IllegalArgumentException("Unknown load balancer type: " + type);
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks two random endpoints and takes the one with the lower expected cost, i.e. the EWMA latency weighted by the
+ * requests already in flight on it.
+ */
+public class PowerOfTwoChoicesLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ProducerEndpoint select(List<ProducerEndpoint> endpoints) {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.size());
+        int second = random.nextInt(endpoints.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ProducerEndpoint a = endpoints.get(first);
+        ProducerEndpoint b = endpoints.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private static double cost(ProducerEndpoint endpoint) {
+        return endpoint.getEwmaLatencyNanos() * (endpoint.getInFlight() + 1);
+    }
+}
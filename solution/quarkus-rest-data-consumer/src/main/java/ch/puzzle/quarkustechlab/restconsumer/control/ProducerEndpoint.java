@@ -0,0 +1,80 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.boundary.DataProducerService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One producer instance together with the state the load balancer decides on: requests in flight, an exponentially
+ * weighted moving average of the latency and the passive outlier ejection state.
+ */
+public class ProducerEndpoint {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final URI uri;
+    private final DataProducerService client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double ewmaLatencyNanos;
+    private int consecutiveFailures;
+    private volatile boolean ejected;
+    private volatile long ejectedUntilNanos;
+
+    public ProducerEndpoint(URI uri, DataProducerService client) {
+        this.uri = uri;
+        this.client = client;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    DataProducerService getClient() {
+        return client;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getEwmaLatencyNanos() {
+        return ewmaLatencyNanos;
+    }
+
+    public boolean isEjected() {
+        // nanoTime has an arbitrary origin and may be negative, so the deadline alone can't tell if there is one
+        return ejected && System.nanoTime() - ejectedUntilNanos < 0;
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+    }
+
+    synchronized void success(long latencyNanos) {
+        inFlight.decrementAndGet();
+        consecutiveFailures = 0;
+        ewmaLatencyNanos = ewmaLatencyNanos == 0 ? latencyNanos : EWMA_ALPHA * latencyNanos + (1 - EWMA_ALPHA) * ewmaLatencyNanos;
+    }
+
+    synchronized void failure(long latencyNanos, int ejectionThreshold, long ejectionNanos) {
+        inFlight.decrementAndGet();
+        ewmaLatencyNanos = ewmaLatencyNanos == 0 ? latencyNanos : EWMA_ALPHA * latencyNanos + (1 - EWMA_ALPHA) * ewmaLatencyNanos;
+        if (++consecutiveFailures >= ejectionThreshold) {
+            consecutiveFailures = 0;
+            ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+            ejected = true;
+        }
+    }
+
+    /**
+     * Releases the connection pool of the client, the clients built by QuarkusRestClientBuilder are Closeable.
+     */
+    void close() throws IOException {
+        if (client instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.boundary.DataProducerService;
+import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads producer calls over several producer instances. The endpoints come from a static list or from a file with one
+ * URL per line that is re-read when it changes. Endpoints failing repeatedly are ejected for a while (passive outlier
+ * detection) and in-flight requests and EWMA latency are exported per endpoint.
+ */
+@ApplicationScoped
+public class ProducerEndpoints {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerEndpoints.class);
+
+    private final MeterRegistry registry;
+    private final LoadBalancer loadBalancer;
+    private final Optional<List<String>> staticEndpoints;
+    private final Optional<String> endpointsFile;
+    private final Duration refreshInterval;
+    private final Duration timeout;
+    private final int ejectionThreshold;
+    private final long ejectionNanos;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<URI, List<Meter>> meters = new LinkedHashMap<>();
+    private volatile List<ProducerEndpoint> endpoints = List.of();
+    private long fileModified = -1;
+
+    public ProducerEndpoints(MeterRegistry registry,
+                             @ConfigProperty(name = "consumer.load-balancing.type", defaultValue = "round-robin") String type,
+                             @ConfigProperty(name = "consumer.load-balancing.endpoints") Optional<List<String>> staticEndpoints,
+                             @ConfigProperty(name = "consumer.load-balancing.endpoints-file") Optional<String> endpointsFile,
+                             @ConfigProperty(name = "consumer.load-balancing.refresh-interval", defaultValue = "10s") Duration refreshInterval,
+                             @ConfigProperty(name = "consumer.load-balancing.timeout", defaultValue = "500ms") Duration timeout,
+                             @ConfigProperty(name = "consumer.load-balancing.ejection-threshold", defaultValue = "5") int ejectionThreshold,
+                             @ConfigProperty(name = "consumer.load-balancing.ejection-time", defaultValue = "30s") Duration ejectionTime) {
+        this.registry = registry;
+        this.loadBalancer = LoadBalancer.of(type);
+        this.staticEndpoints = staticEndpoints;
+        this.endpointsFile = endpointsFile;
+        this.refreshInterval = refreshInterval;
+        this.timeout = timeout;
+        this.ejectionThreshold = ejectionThreshold;
+        this.ejectionNanos = ejectionTime.toNanos();
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        staticEndpoints.ifPresent(this::update);
+        endpointsFile.ifPresent(file -> scheduler.scheduleWithFixedDelay(this::reloadFile, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    void onShutDown(@Observes ShutdownEvent ev) {
+        scheduler.shutdown();
+        endpoints.forEach(this::close);
+    }
+
+    public List<ProducerEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public SensorMeasurement getSensorMeasurement() {
+        List<ProducerEndpoint> current = endpoints;
+        if (current.isEmpty()) {
+            logger.warn("No producer endpoints configured");
+            return new SensorMeasurement();
+        }
+        List<ProducerEndpoint> healthy = current.stream().filter(endpoint -> !endpoint.isEjected()).toList();
+        // when every endpoint is ejected, trying one is better than failing all requests
+        ProducerEndpoint endpoint = loadBalancer.select(healthy.isEmpty() ? current : healthy);
+
+        endpoint.start();
+        long start = System.nanoTime();
+        try {
+            SensorMeasurement measurement = endpoint.getClient().getSensorMeasurement();
+            endpoint.success(System.nanoTime() - start);
+            return measurement;
+        } catch (RuntimeException e) {
+            endpoint.failure(System.nanoTime() - start, ejectionThreshold, ejectionNanos);
+            logger.debug("Producer {} failed: {}", endpoint.getUri(), e.getMessage());
+            return new SensorMeasurement();
+        }
+    }
+
+    private void reloadFile() {
+        Path path = Path.of(endpointsFile.orElseThrow());
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified != fileModified) {
+                fileModified = modified;
+                update(Files.readAllLines(path).stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .toList());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read producer endpoints from {}: {}", path, e.getMessage());
+        }
+    }
+
+    synchronized void update(List<String> urls) {
+        Map<URI, ProducerEndpoint> existing = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> existing.put(endpoint.getUri(), endpoint));
+
+        List<ProducerEndpoint> updated = new ArrayList<>();
+        for (String url : urls) {
+            URI uri = URI.create(url);
+            ProducerEndpoint endpoint = existing.remove(uri);
+            updated.add(endpoint != null ? endpoint : create(uri));
+        }
+        existing.keySet().forEach(uri -> meters.remove(uri).forEach(registry::remove));
+        endpoints = List.copyOf(updated);
+        logger.info("Producer endpoints: {}", urls);
+
+        if (!existing.isEmpty()) {
+            // requests still in flight on a removed endpoint end within the timeout, close its client afterwards
+            List<ProducerEndpoint> removed = List.copyOf(existing.values());
+            scheduler.schedule(() -> removed.forEach(this::close), timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void close(ProducerEndpoint endpoint) {
+        try {
+            endpoint.close();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not close the client of producer {}: {}", endpoint.getUri(), e.getMessage());
+        }
+    }
+
+    private ProducerEndpoint create(URI uri) {
+        DataProducerService client = QuarkusRestClientBuilder.newBuilder()
+                .baseUri(uri)
+                .connectTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .build(DataProducerService.class);
+        ProducerEndpoint endpoint = new ProducerEndpoint(uri, client);
+        Tags tags = Tags.of("endpoint", uri.toString());
+        meters.put(uri, List.of(
+                Gauge.builder("producer_endpoint_in_flight", endpoint, ProducerEndpoint::getInFlight).tags(tags).register(registry),
+                Gauge.builder("producer_endpoint_latency_ewma_seconds", endpoint, e -> e.getEwmaLatencyNanos() / 1e9).tags(tags).register(registry),
+                Gauge.builder("producer_endpoint_ejected", endpoint, e -> e.isEjected() ? 1 : 0).tags(tags).register(registry)));
+        return endpoint;
+    }
+}
@@ -0,0 +1,14 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public ProducerEndpoint select(List<ProducerEndpoint> endpoints) {
+        return endpoints.get(Math.floorMod(next.getAndIncrement(), endpoints.size()));
+    }
+}
@@ -0,0 +1,89 @@
+package ch.puzzle.quarkustechlab.restconsumer.boundary;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load-test harness comparing the platform thread endpoint {@code /data} with the virtual thread endpoint
+ * {@code /data/virtual} of a running consumer. Not executed as part of the test suite, run it with:
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ch.puzzle.quarkustechlab.restconsumer.boundary.ConcurrencyBenchmark \
+ *     -Dexec.args="http://localhost:8081 30 1000,5000,10000"
+ * </pre>
+ */
+public class ConcurrencyBenchmark {
+
+    public static void main(String[] args) {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081";
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+        int[] concurrencies = Arrays.stream((args.length > 2 ? args[2] : "1000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-15s %8s %12s %10s %10s %8s%n", "endpoint", "callers", "requests/s", "p50 ms", "p99 ms", "errors");
+        for (int concurrency : concurrencies) {
+            for (String path : List.of("/data", "/data/virtual")) {
+                run(URI.create(baseUrl + path), path, concurrency, duration);
+            }
+        }
+    }
+
+    private static void run(URI uri, String name, int concurrency, Duration duration) {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        // one bucket per millisecond, the last bucket collects everything slower
+        AtomicLongArray histogram = new AtomicLongArray(60_001);
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                callers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        histogram.incrementAndGet((int) Math.min(millis, histogram.length() - 1));
+                    }
+                    return null;
+                });
+            }
+        }
+
+        long total = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            total += histogram.get(i);
+        }
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%-15s %8d %12.1f %10d %10d %8d%n", name, concurrency, total / seconds,
+                percentile(histogram, total, 0.50), percentile(histogram, total, 0.99), errors.get());
+    }
+
+    private static long percentile(AtomicLongArray histogram, long total, double percentile) {
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -9,6 +9,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.util.concurrent.CompletableFuture;
+
 import static io.restassured.RestAssured.when;
 
 @QuarkusTest
@@ -21,11 +23,11 @@ class DataConsumerResourceTest {
     @Test
     @DisplayName("should return data at /data")
     public void dataTest() {
-        Mockito.when(dataProducerService.getSensorMeasurement()).thenReturn(new SensorMeasurement());
+        Mockito.when(dataProducerService.getSensorMeasurementAsync()).thenReturn(CompletableFuture.completedFuture(new SensorMeasurement()));
         when().get("/data")
                 .then()
                 .statusCode(200)
                 .body(CoreMatchers.isA(String.class));
-        Mockito.verify(dataProducerService, Mockito.times(1)).getSensorMeasurement();
+        Mockito.verify(dataProducerService, Mockito.times(1)).getSensorMeasurementAsync();
     }
 }
\ No newline at end of file
@@ -0,0 +1,153 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.boundary.DataProducerService;
+import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+class AdaptiveProducerClientTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StubProducer producer = new StubProducer();
+
+    @Test
+    @DisplayName("the timeout is p95 times the factor, clamped to min and max")
+    public void timeoutTest() {
+        AdaptiveProducerClient client = client(Duration.ofMillis(100), Duration.ofSeconds(2), false, 0.1);
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), client.currentTimeoutNanos());
+
+        record(client, 20, Duration.ofMillis(200));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(300), client.currentTimeoutNanos());
+
+        AdaptiveProducerClient fast = client(Duration.ofMillis(100), Duration.ofSeconds(2), false, 0.1);
+        record(fast, 20, Duration.ofMillis(10));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), fast.currentTimeoutNanos());
+
+        AdaptiveProducerClient slow = client(Duration.ofMillis(100), Duration.ofSeconds(2), false, 0.1);
+        record(slow, 20, Duration.ofSeconds(5));
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(2), slow.currentTimeoutNanos());
+    }
+
+    @Test
+    @DisplayName("hedges are limited by the budget earned through primary requests")
+    public void hedgeBudgetTest() {
+        AdaptiveProducerClient client = client(Duration.ofMillis(100), Duration.ofSeconds(2), true, 0.5);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(client.acquireHedgeToken());
+        }
+        Assertions.assertFalse(client.acquireHedgeToken());
+
+        client.earnHedgeToken();
+        Assertions.assertFalse(client.acquireHedgeToken());
+        client.earnHedgeToken();
+        Assertions.assertTrue(client.acquireHedgeToken());
+
+        for (int i = 0; i < 100; i++) {
+            client.earnHedgeToken();
+        }
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(client.acquireHedgeToken());
+        }
+        Assertions.assertFalse(client.acquireHedgeToken());
+    }
+
+    @Test
+    @DisplayName("a timed out request is cancelled and the default measurement returned")
+    public void timeoutFallbackTest() {
+        AdaptiveProducerClient client = client(Duration.ofMillis(50), Duration.ofMillis(50), false, 0.1);
+        CompletableFuture<SensorMeasurement> primary = producer.next(new CompletableFuture<>());
+
+        SensorMeasurement measurement = client.getSensorMeasurement();
+
+        Assertions.assertNull(measurement.data);
+        Assertions.assertTrue(primary.isCancelled());
+        Assertions.assertEquals(1, client.latencies.count());
+        Assertions.assertEquals(1, count("fallback"));
+    }
+
+    @Test
+    @DisplayName("a faster hedge wins and the slow primary is cancelled")
+    public void hedgeTest() {
+        AdaptiveProducerClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(2), true, 0.1);
+        record(client, 20, Duration.ofMillis(10));
+        CompletableFuture<SensorMeasurement> primary = producer.next(new CompletableFuture<>());
+        producer.next(CompletableFuture.completedFuture(measurement(42)));
+
+        SensorMeasurement measurement = client.getSensorMeasurement();
+
+        Assertions.assertEquals(42, measurement.data);
+        Assertions.assertTrue(primary.isCancelled());
+        Assertions.assertEquals(2, producer.calls.size());
+        Assertions.assertEquals(1, count("hedge"));
+        Assertions.assertEquals(0, count("primary"));
+        Assertions.assertEquals(1, registry.get("producer_hedges_sent").counter().count());
+    }
+
+    @Test
+    @DisplayName("a failing primary falls back right away")
+    public void failureTest() {
+        AdaptiveProducerClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(2), false, 0.1);
+        producer.next(CompletableFuture.failedFuture(new IllegalStateException("producer down")));
+
+        Assertions.assertNull(client.getSensorMeasurement().data);
+        Assertions.assertEquals(0, client.latencies.count());
+        Assertions.assertEquals(1, count("fallback"));
+    }
+
+    private AdaptiveProducerClient client(Duration min, Duration max, boolean hedging, double budget) {
+        return new AdaptiveProducerClient(producer.service, registry, 1.5, Duration.ofMillis(500), min, max, hedging, budget);
+    }
+
+    private static void record(AdaptiveProducerClient client, int samples, Duration latency) {
+        for (int i = 0; i < samples; i++) {
+            client.latencies.record(latency.toNanos());
+        }
+    }
+
+    private double count(String outcome) {
+        return registry.get("producer_requests").tag("outcome", outcome).counter().count();
+    }
+
+    private static SensorMeasurement measurement(double data) {
+        SensorMeasurement measurement = new SensorMeasurement();
+        measurement.data = data;
+        return measurement;
+    }
+
+    /**
+     * Answers the async calls with the prepared futures in order, requests without a prepared answer never complete.
+     * A mock rather than an implementation, which Quarkus would pick up as a second /data resource.
+     */
+    private static class StubProducer {
+
+        private final Queue<CompletableFuture<SensorMeasurement>> answers = new ConcurrentLinkedQueue<>();
+        private final List<CompletableFuture<SensorMeasurement>> calls = new CopyOnWriteArrayList<>();
+        private final DataProducerService service = Mockito.mock(DataProducerService.class);
+
+        StubProducer() {
+            Mockito.when(service.getSensorMeasurementAsync()).thenAnswer(invocation -> {
+                CompletableFuture<SensorMeasurement> answer = answers.poll();
+                CompletableFuture<SensorMeasurement> call = answer == null ? new CompletableFuture<>() : answer;
+                calls.add(call);
+                return call;
+            });
+        }
+
+        CompletableFuture<SensorMeasurement> next(CompletableFuture<SensorMeasurement> answer) {
+            answers.add(answer);
+            return answer;
+        }
+    }
+}
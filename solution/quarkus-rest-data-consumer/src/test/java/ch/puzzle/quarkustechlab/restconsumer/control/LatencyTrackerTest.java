@@ -0,0 +1,43 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+    @Test
+    @DisplayName("percentiles use the nearest rank of the sorted samples")
+    public void percentileTest() {
+        LatencyTracker tracker = new LatencyTracker(100, 0);
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(i);
+        }
+        Assertions.assertEquals(100, tracker.count());
+        Assertions.assertEquals(1, tracker.percentile(0));
+        Assertions.assertEquals(50, tracker.percentile(0.5));
+        Assertions.assertEquals(90, tracker.percentile(0.9));
+        Assertions.assertEquals(95, tracker.percentile(0.95));
+        Assertions.assertEquals(100, tracker.percentile(1));
+    }
+
+    @Test
+    @DisplayName("an empty tracker reports zero")
+    public void emptyTest() {
+        LatencyTracker tracker = new LatencyTracker(10, 0);
+        Assertions.assertEquals(0, tracker.count());
+        Assertions.assertEquals(0, tracker.percentile(0.95));
+    }
+
+    @Test
+    @DisplayName("only the last samples are kept once the window is full")
+    public void windowTest() {
+        LatencyTracker tracker = new LatencyTracker(4, 0);
+        for (int i = 1; i <= 6; i++) {
+            tracker.record(i * 10L);
+        }
+        Assertions.assertEquals(4, tracker.count());
+        Assertions.assertEquals(30, tracker.percentile(0));
+        Assertions.assertEquals(60, tracker.percentile(1));
+    }
+}
@@ -0,0 +1,52 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+
+class LoadBalancerTest {
+
+    private final ProducerEndpoint fast = new ProducerEndpoint(URI.create("http://fast:8080"), null);
+    private final ProducerEndpoint slow = new ProducerEndpoint(URI.create("http://slow:8080"), null);
+
+    @Test
+    @DisplayName("round robin alternates between endpoints")
+    public void roundRobinTest() {
+        LoadBalancer loadBalancer = LoadBalancer.of("round-robin");
+        List<ProducerEndpoint> endpoints = List.of(fast, slow);
+        Assertions.assertSame(fast, loadBalancer.select(endpoints));
+        Assertions.assertSame(slow, loadBalancer.select(endpoints));
+        Assertions.assertSame(fast, loadBalancer.select(endpoints));
+    }
+
+    @Test
+    @DisplayName("least outstanding picks the endpoint with fewer requests in flight")
+    public void leastOutstandingTest() {
+        slow.start();
+        Assertions.assertSame(fast, LoadBalancer.of("least-outstanding").select(List.of(fast, slow)));
+    }
+
+    @Test
+    @DisplayName("power of two choices prefers the endpoint with the lower EWMA latency")
+    public void powerOfTwoChoicesTest() {
+        fast.start();
+        fast.success(1_000_000);
+        slow.start();
+        slow.success(500_000_000);
+        Assertions.assertSame(fast, LoadBalancer.of("power-of-two-choices").select(List.of(fast, slow)));
+    }
+
+    @Test
+    @DisplayName("endpoints are ejected after consecutive failures")
+    public void ejectionTest() {
+        for (int i = 0; i < 3; i++) {
+            slow.start();
+            slow.failure(1_000_000, 3, 60_000_000_000L);
+        }
+        Assertions.assertTrue(slow.isEjected());
+        Assertions.assertFalse(fast.isEjected());
+    }
+}
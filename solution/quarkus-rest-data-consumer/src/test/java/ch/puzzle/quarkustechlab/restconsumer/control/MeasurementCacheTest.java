@@ -0,0 +1,110 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.entity.SensorMeasurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class MeasurementCacheTest {
+
+    @Test
+    @DisplayName("concurrent callers share one upstream call")
+    public void coalescingTest() throws Exception {
+        MeasurementCache cache = new MeasurementCache(new SimpleMeterRegistry(), null, true, false, Duration.ZERO, Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<SensorMeasurement> upstream = () -> {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return measurement(0.5);
+        };
+
+        CompletableFuture<SensorMeasurement> first = CompletableFuture.supplyAsync(() -> cache.get(upstream));
+        while (calls.get() == 0) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<SensorMeasurement> second = CompletableFuture.supplyAsync(() -> cache.get(upstream));
+        Thread.sleep(100);
+        release.countDown();
+
+        Assertions.assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("cached values are served within the TTL but fallbacks are not cached")
+    public void cacheTest() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MeasurementCache cache = new MeasurementCache(registry, null, true, true, Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(() -> {
+            calls.incrementAndGet();
+            return new SensorMeasurement();
+        });
+        cache.get(() -> {
+            calls.incrementAndGet();
+            return measurement(0.5);
+        });
+        SensorMeasurement cached = cache.get(() -> {
+            calls.incrementAndGet();
+            return measurement(0.7);
+        });
+
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(0.5, cached.data);
+        Assertions.assertEquals(1, registry.get("producer_cache_requests").tag("result", "hit").counter().count());
+        Assertions.assertEquals(2, registry.get("producer_cache_requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("concurrent stale hits start a single background refresh")
+    public void staleWhileRevalidateTest() throws Exception {
+        ManagedExecutor executor = ManagedExecutor.builder().build();
+        MeasurementCache cache = new MeasurementCache(new SimpleMeterRegistry(), executor, false, true, Duration.ofMillis(1), Duration.ofMinutes(1));
+        cache.get(() -> measurement(0.5));
+        Thread.sleep(10);
+        AtomicInteger refreshes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<SensorMeasurement> upstream = () -> {
+            refreshes.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return measurement(0.7);
+        };
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(0.5, cache.get(upstream).data);
+            }
+            release.countDown();
+            Thread.sleep(100);
+            Assertions.assertEquals(1, refreshes.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SensorMeasurement measurement(double data) {
+        SensorMeasurement measurement = new SensorMeasurement();
+        measurement.data = data;
+        return measurement;
+    }
+}
@@ -0,0 +1,27 @@
+package ch.puzzle.quarkustechlab.restconsumer.control;
+
+import ch.puzzle.quarkustechlab.restconsumer.boundary.DataProducerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.Closeable;
+import java.net.URI;
+
+class ProducerEndpointTest {
+
+    @Test
+    @DisplayName("closing an endpoint closes its REST client")
+    public void closeTest() throws Exception {
+        DataProducerService client = Mockito.mock(DataProducerService.class, Mockito.withSettings().extraInterfaces(Closeable.class));
+        new ProducerEndpoint(URI.create("http://removed:8080"), client).close();
+        Mockito.verify((Closeable) client).close();
+    }
+
+    @Test
+    @DisplayName("endpoints without a closeable client are closed without error")
+    public void closeWithoutClientTest() {
+        Assertions.assertDoesNotThrow(() -> new ProducerEndpoint(URI.create("http://removed:8080"), null).close());
+    }
+}
@@ -1,7 +1,9 @@
 package ch.puzzle.quarkustechlab.restproducer.boundary;
 
 import ch.puzzle.quarkustechlab.restproducer.control.DummyService;
+import ch.puzzle.quarkustechlab.restproducer.control.LatencySimulator;
 import ch.puzzle.quarkustechlab.restproducer.entity.SensorMeasurement;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
@@ -10,25 +12,23 @@ import jakarta.ws.rs.core.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Random;
-
 @Path("/data")
 public class DataResource {
 
     private static final Logger logger = LoggerFactory.getLogger(DataResource.class.getName());
 
-    Random random = new Random();
-
     @Inject
     DummyService dummyService;
 
+    @Inject
+    LatencySimulator latencySimulator;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public SensorMeasurement hello() throws InterruptedException {
+    public Uni<SensorMeasurement> hello() {
         logger.info("RestCall");
         logger.info("getSensorMeasurement called!");
-        Thread.sleep(random.nextInt(1000));
-        return new SensorMeasurement();
+        return latencySimulator.simulate(SensorMeasurement::new);
     }
 
     @GET
@@ -0,0 +1,110 @@
+package ch.puzzle.quarkustechlab.restproducer.control;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Simulates a slow and unreliable backend without blocking a thread: responses are delayed on a timer according to the
+ * configured distribution, and a configurable share of requests fails or times out.
+ */
+@ApplicationScoped
+public class LatencySimulator {
+
+    public enum Distribution { FIXED, UNIFORM, NORMAL, HISTOGRAM }
+
+    private final Distribution distribution;
+    private final long fixedMs;
+    private final long minMs;
+    private final long maxMs;
+    private final double meanMs;
+    private final double stddevMs;
+    private final long[] histogramBounds;
+    private final double[] histogramCumulative;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final long timeoutMs;
+
+    public LatencySimulator(@ConfigProperty(name = "producer.latency.distribution", defaultValue = "uniform") String distribution,
+                            @ConfigProperty(name = "producer.latency.fixed-ms", defaultValue = "500") long fixedMs,
+                            @ConfigProperty(name = "producer.latency.min-ms", defaultValue = "0") long minMs,
+                            @ConfigProperty(name = "producer.latency.max-ms", defaultValue = "1000") long maxMs,
+                            @ConfigProperty(name = "producer.latency.mean-ms", defaultValue = "500") double meanMs,
+                            @ConfigProperty(name = "producer.latency.stddev-ms", defaultValue = "150") double stddevMs,
+                            @ConfigProperty(name = "producer.latency.histogram") Optional<String> histogram,
+                            @ConfigProperty(name = "producer.latency.error-rate", defaultValue = "0") double errorRate,
+                            @ConfigProperty(name = "producer.latency.timeout-rate", defaultValue = "0") double timeoutRate,
+                            @ConfigProperty(name = "producer.latency.timeout-ms", defaultValue = "30000") long timeoutMs) {
+        this.distribution = Distribution.valueOf(distribution.toUpperCase());
+        this.fixedMs = fixedMs;
+        this.minMs = minMs;
+        this.maxMs = Math.max(minMs, maxMs);
+        this.meanMs = meanMs;
+        this.stddevMs = stddevMs;
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeoutMs = timeoutMs;
+
+        // histogram format: "<upper bound ms>:<weight>,...", e.g. "50:70,200:25,1000:5"
+        String[] buckets = histogram.orElse("").isBlank() ? new String[0] : histogram.get().split(",");
+        this.histogramBounds = new long[buckets.length];
+        this.histogramCumulative = new double[buckets.length];
+        double total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            String[] bucket = buckets[i].trim().split(":");
+            histogramBounds[i] = Long.parseLong(bucket[0].trim());
+            total += Double.parseDouble(bucket[1].trim());
+            histogramCumulative[i] = total;
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            histogramCumulative[i] /= total;
+        }
+        if (this.distribution == Distribution.HISTOGRAM && buckets.length == 0) {
+            throw new IllegalArgumentException("producer.latency.histogram must be set for the histogram distribution");
+        }
+    }
+
+    public <T> Uni<T> simulate(Supplier<T> supplier) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double outcome = random.nextDouble();
+        if (outcome < timeoutRate) {
+            return Uni.createFrom().<T>nothing()
+                    .ifNoItem().after(Duration.ofMillis(timeoutMs))
+                    .failWith(() -> new WebApplicationException(Response.Status.GATEWAY_TIMEOUT));
+        }
+        Uni<T> delayed = Uni.createFrom().item(supplier).onItem().delayIt().by(Duration.ofMillis(nextDelayMs()));
+        if (outcome < timeoutRate + errorRate) {
+            return delayed.onItem().failWith(() -> new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR));
+        }
+        return delayed;
+    }
+
+    long nextDelayMs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (distribution) {
+            case FIXED -> fixedMs;
+            case UNIFORM -> minMs == maxMs ? minMs : random.nextLong(minMs, maxMs);
+            case NORMAL -> Math.max(0, Math.round(meanMs + random.nextGaussian() * stddevMs));
+            case HISTOGRAM -> histogramDelayMs(random);
+        };
+    }
+
+    private long histogramDelayMs(ThreadLocalRandom random) {
+        double sample = random.nextDouble();
+        long lowerBound = 0;
+        for (int i = 0; i < histogramBounds.length; i++) {
+            if (sample <= histogramCumulative[i]) {
+                return histogramBounds[i] > lowerBound ? random.nextLong(lowerBound, histogramBounds[i]) : lowerBound;
+            }
+            lowerBound = histogramBounds[i];
+        }
+        return lowerBound;
+    }
+}
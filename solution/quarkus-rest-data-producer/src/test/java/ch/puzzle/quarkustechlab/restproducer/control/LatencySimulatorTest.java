@@ -0,0 +1,47 @@
+package ch.puzzle.quarkustechlab.restproducer.control;
+
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class LatencySimulatorTest {
+
+    @Test
+    @DisplayName("uniform delays stay within the configured bounds")
+    public void testUniform() {
+        LatencySimulator simulator = new LatencySimulator("uniform", 0, 100, 200, 0, 0, Optional.empty(), 0, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            long delay = simulator.nextDelayMs();
+            Assertions.assertTrue(delay >= 100 && delay < 200, "delay out of bounds: " + delay);
+        }
+    }
+
+    @Test
+    @DisplayName("histogram delays are replayed from the configured buckets")
+    public void testHistogram() {
+        LatencySimulator simulator = new LatencySimulator("histogram", 0, 0, 0, 0, 0, Optional.of("10:1,20:0"), 0, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            long delay = simulator.nextDelayMs();
+            Assertions.assertTrue(delay >= 0 && delay < 10, "delay out of bucket: " + delay);
+        }
+    }
+
+    @Test
+    @DisplayName("error rate of 1 fails every request")
+    public void testErrors() {
+        LatencySimulator simulator = new LatencySimulator("fixed", 1, 0, 0, 0, 0, Optional.empty(), 1, 0, 0);
+        Assertions.assertThrows(WebApplicationException.class,
+                () -> simulator.simulate(() -> "data").await().atMost(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("fixed delay completes with the supplied item")
+    public void testFixed() {
+        LatencySimulator simulator = new LatencySimulator("fixed", 10, 0, 0, 0, 0, Optional.empty(), 0, 0, 0);
+        Assertions.assertEquals("data", simulator.simulate(() -> "data").await().atMost(Duration.ofSeconds(1)));
+    }
+}